@@ -0,0 +1,192 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.emc.mongoose.base.item.op.Operation;
+import com.emc.mongoose.base.logging.Loggers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.github.akurilov.commons.lang.Exceptions.throwUnchecked;
+
+/**
+ Closes the output streams in the bounded thread pool, so the I/O threads don't wait for the last packet
+ acks and the namenode "complete" call. The operation should stay active until its close future is done.
+ If the pool queue is full the close is not submitted and the submission is retried by the next
+ {@link #pendingClose(Operation)} call, the I/O thread never closes the stream itself. The closer waits for
+ the pending closes limited time when it's closed itself, the streams not closed in time are abandoned and
+ their close futures are cancelled. The state is logged periodically while there are closes in flight.
+ */
+public final class AsyncCloser
+implements AutoCloseable {
+
+	private static final long REPORT_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private final class CloseTask
+	extends FutureTask<Void> {
+
+		private volatile boolean submitted = false;
+
+		CloseTask(final Closeable stream) {
+			super(
+				() -> {
+					final long t = System.nanoTime();
+					try {
+						stream.close();
+					} finally {
+						closeNanos.add(System.nanoTime() - t);
+						closeCount.increment();
+						inFlightCount.decrementAndGet();
+					}
+					return null;
+				}
+			);
+		}
+
+		/**
+		 @return true if the task is submitted, false if the pool queue is full
+		 */
+		boolean submit() {
+			inFlightPeak.accumulate(inFlightCount.incrementAndGet());
+			try {
+				executor.execute(this);
+				submitted = true;
+			} catch(final RejectedExecutionException e) {
+				inFlightCount.decrementAndGet();
+				rejectCount.increment();
+				if(executor.isShutdown()) {
+					// no retry anymore, let the operation finish
+					setException(new IOException("The closer is closed, the output stream is abandoned"));
+				}
+			}
+			return submitted;
+		}
+	}
+
+	private final String name;
+	private final long closeTimeoutMillis;
+	private final ThreadPoolExecutor executor;
+	private final ConcurrentMap<Operation<?>, CloseTask> pendingCloses = new ConcurrentHashMap<>();
+	private final AtomicInteger inFlightCount = new AtomicInteger(0);
+	private final LongAccumulator inFlightPeak = new LongAccumulator(Math::max, 0);
+	private final LongAdder closeCount = new LongAdder();
+	private final LongAdder closeNanos = new LongAdder();
+	private final LongAdder rejectCount = new LongAdder();
+	private final AtomicLong lastReportNanos = new AtomicLong(System.nanoTime());
+
+	/**
+	 @param closeTimeoutMillis the max time to wait for the pending closes when the closer is closed
+	 */
+	public AsyncCloser(
+		final String threadNamePrefix, final int threads, final int queueLimit, final long closeTimeoutMillis
+	) {
+		this.name = threadNamePrefix;
+		this.closeTimeoutMillis = closeTimeoutMillis;
+		final AtomicInteger threadNum = new AtomicInteger(0);
+		executor = new ThreadPoolExecutor(
+			threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueLimit),
+			task -> {
+				final Thread thread = new Thread(task, threadNamePrefix + "#" + threadNum.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			},
+			new ThreadPoolExecutor.AbortPolicy()
+		);
+	}
+
+	/**
+	 Submits the stream close for the operation. If the pool queue is full the stream is kept pending and
+	 the submission is retried by the next {@link #pendingClose(Operation)} call.
+	 */
+	public void close(final Operation<?> operation, final Closeable stream) {
+		final CloseTask closeTask = new CloseTask(stream);
+		pendingCloses.put(operation, closeTask);
+		closeTask.submit();
+		report();
+	}
+
+	/**
+	 Retries the submission of the close which was not submitted before because the pool queue was full
+	 @return the close future for the operation or null if there's no pending close for it
+	 */
+	public Future<?> pendingClose(final Operation<?> operation) {
+		final CloseTask closeTask = pendingCloses.get(operation);
+		if(closeTask != null && ! closeTask.submitted && ! closeTask.isDone()) {
+			closeTask.submit();
+		}
+		return closeTask;
+	}
+
+	public void remove(final Operation<?> operation) {
+		pendingCloses.remove(operation);
+	}
+
+	public int inFlightCount() {
+		return inFlightCount.get();
+	}
+
+	/**
+	 @return the count of the close submissions rejected because the pool queue was full
+	 */
+	public long rejectCount() {
+		return rejectCount.sum();
+	}
+
+	private void report() {
+		final long t = lastReportNanos.get();
+		final long now = System.nanoTime();
+		if(now - t >= REPORT_PERIOD_NANOS && lastReportNanos.compareAndSet(t, now)) {
+			Loggers.MSG.info("{}: {}", name, this);
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdown();
+		try {
+			// close the streams which were not submitted yet in this thread, the I/O threads are done already
+			for(final CloseTask closeTask : pendingCloses.values()) {
+				if(! closeTask.submitted && ! closeTask.isDone()) {
+					inFlightCount.incrementAndGet();
+					closeTask.run();
+				}
+			}
+			if(! executor.awaitTermination(closeTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				final int activeCount = executor.getActiveCount();
+				int abandonedCount = activeCount;
+				for(final Runnable queuedTask : executor.shutdownNow()) {
+					((CloseTask) queuedTask).cancel(false);
+					inFlightCount.decrementAndGet();
+					abandonedCount ++;
+				}
+				Loggers.ERR.warn(
+					"{}: {} output streams are not closed in {}[ms], abandoned", name, abandonedCount,
+					closeTimeoutMillis
+				);
+			}
+		} catch(final InterruptedException e) {
+			throwUnchecked(e);
+		} finally {
+			pendingCloses.clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		final long count = closeCount.sum();
+		return "closes: " + count + ", in-flight: " + inFlightCount.get() + ", peak in-flight: "
+			+ inFlightPeak.get() + ", rejected by the full queue: " + rejectCount.sum() + ", mean close time: "
+			+ (count > 0 ? TimeUnit.NANOSECONDS.toMicros(closeNanos.sum() / count) : 0) + "[us]";
+	}
+}
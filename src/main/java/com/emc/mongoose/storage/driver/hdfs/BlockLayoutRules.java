@@ -0,0 +1,118 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.github.akurilov.commons.system.SizeInBytes;
+
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Selects the block size and the replication factor for the file being created by the file size. Each rule
+ is defined as "minFileSize:blockSize[:replication]", the rule with the largest min file size which is not
+ more than the file size is selected. The default block size and replication are used if no rule matches.
+ Also counts the files created per each applied (block size, replication) combination.
+ */
+public final class BlockLayoutRules {
+
+	private final long defaultBlockSize;
+	private final short defaultReplication;
+	private final long[] minFileSizes;
+	private final long[] blockSizes;
+	private final short[] replications;
+	private final ConcurrentMap<String, LongAdder> appliedCounts = new ConcurrentHashMap<>();
+
+	/**
+	 @param defaultBlockSize the block size to use if no rule matches, 0 means the file size
+	 @param defaultReplication the replication factor to use if no rule matches, 0 means the file system
+	 default
+	 @param rules the "minFileSize:blockSize[:replication]" rules list
+	 @throws IllegalArgumentException if a rule is malformed
+	 */
+	public BlockLayoutRules(
+		final long defaultBlockSize, final short defaultReplication, final List<String> rules
+	) throws IllegalArgumentException {
+		if(defaultBlockSize < 0) {
+			throw new IllegalArgumentException("Invalid block size: " + defaultBlockSize);
+		}
+		if(defaultReplication < 0) {
+			throw new IllegalArgumentException("Invalid replication: " + defaultReplication);
+		}
+		this.defaultBlockSize = defaultBlockSize;
+		this.defaultReplication = defaultReplication;
+		final int ruleCount = rules == null ? 0 : rules.size();
+		minFileSizes = new long[ruleCount];
+		blockSizes = new long[ruleCount];
+		replications = new short[ruleCount];
+		for(int i = 0; i < ruleCount; i ++) {
+			final String rule = rules.get(i);
+			final String[] ruleParts = rule.split(":");
+			if(ruleParts.length < 2 || ruleParts.length > 3) {
+				throw new IllegalArgumentException("Invalid block layout rule: \"" + rule + "\"");
+			}
+			try {
+				minFileSizes[i] = SizeInBytes.toFixedSize(ruleParts[0].trim());
+				blockSizes[i] = SizeInBytes.toFixedSize(ruleParts[1].trim());
+				replications[i] = ruleParts.length == 3 ? Short.parseShort(ruleParts[2].trim()) : 0;
+			} catch(final NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid block layout rule: \"" + rule + "\"", e);
+			}
+			if(minFileSizes[i] < 0 || blockSizes[i] <= 0 || replications[i] < 0) {
+				throw new IllegalArgumentException("Invalid block layout rule: \"" + rule + "\"");
+			}
+		}
+	}
+
+	private int ruleIndex(final long fileSize) {
+		int selectedIdx = -1;
+		long selectedMinFileSize = -1;
+		for(int i = 0; i < minFileSizes.length; i ++) {
+			if(minFileSizes[i] <= fileSize && minFileSizes[i] > selectedMinFileSize) {
+				selectedMinFileSize = minFileSizes[i];
+				selectedIdx = i;
+			}
+		}
+		return selectedIdx;
+	}
+
+	/**
+	 @return the block size for the file of the given size
+	 */
+	public long blockSize(final long fileSize) {
+		final int ruleIdx = ruleIndex(fileSize);
+		if(ruleIdx >= 0) {
+			return blockSizes[ruleIdx];
+		}
+		return defaultBlockSize > 0 ? defaultBlockSize : fileSize;
+	}
+
+	/**
+	 @return the replication factor for the file of the given size
+	 */
+	public short replication(final long fileSize, final short fsDefaultReplication) {
+		final int ruleIdx = ruleIndex(fileSize);
+		if(ruleIdx >= 0 && replications[ruleIdx] > 0) {
+			return replications[ruleIdx];
+		}
+		return defaultReplication > 0 ? defaultReplication : fsDefaultReplication;
+	}
+
+	public void applied(final long blockSize, final short replication) {
+		appliedCounts
+			.computeIfAbsent(
+				SizeInBytes.formatFixedSize(blockSize) + "/" + replication, key -> new LongAdder()
+			)
+			.increment();
+	}
+
+	@Override
+	public String toString() {
+		final StringJoiner sj = new StringJoiner(", ");
+		for(final Map.Entry<String, LongAdder> appliedCount : appliedCounts.entrySet()) {
+			sj.add(appliedCount.getKey() + ": " + appliedCount.getValue().sum());
+		}
+		return sj.toString();
+	}
+}
@@ -0,0 +1,254 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.item.op.Operation;
+import org.apache.hadoop.fs.CompositeCrcFileChecksum;
+import org.apache.hadoop.fs.FileChecksum;
+import org.apache.hadoop.util.CrcUtil;
+import org.apache.hadoop.util.DataChecksum;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+import static com.emc.mongoose.base.item.DataItem.rangeCount;
+import static com.emc.mongoose.base.item.DataItem.rangeOffset;
+
+/**
+ Verifies the file content by comparing the file's composite CRC calculated by the datanodes with the CRC of
+ the expected content calculated by the client, so the file content is not transferred. The composite CRC
+ doesn't depend on the block and the chunk sizes, it's the same as the CRC of the whole file content. The
+ expected CRC of the not updated content depends only on the item's offset, size and layer, so the least
+ recently used values are cached.
+ The expected CRC is calculated chunk by chunk by the subsequent invocations, so the I/O thread is not
+ blocked by the calculation for the large files.
+ */
+public final class CompositeCrcVerifier {
+
+	private static final class Calculation {
+
+		final DataItem fileItem;
+		final int actualCrc;
+		final String key;
+		Checksum crc = null;
+		int expectedCrc = 0;
+		int rangeIdx = -1;
+		DataItem content = null;
+		long contentRemainingSize = 0;
+		boolean done = false;
+
+		Calculation(final DataItem fileItem, final int actualCrc, final String key) {
+			this.fileItem = fileItem;
+			this.actualCrc = actualCrc;
+			this.key = key;
+		}
+	}
+
+	private final int chunkSize;
+	// not shared with the driver's buffers as far as the calculation is continued by the next invocation
+	private final ThreadLocal<ByteBuffer> crcBuff = new ThreadLocal<>();
+	private final LinkedHashMap<String, Integer> expectedCrcs;
+	private final ConcurrentMap<Operation<?>, Calculation> calculations = new ConcurrentHashMap<>();
+	private final LongAdder verifyCount = new LongAdder();
+	private final LongAdder mismatchCount = new LongAdder();
+	private final LongAdder cacheHitCount = new LongAdder();
+	private final LongAdder cacheEvictCount = new LongAdder();
+	private final LongAdder calcCount = new LongAdder();
+	private final LongAdder calcNanos = new LongAdder();
+
+	/**
+	 @param cacheLimit the max count of the expected CRC values to cache
+	 @param chunkSize the max count of the expected content bytes to calculate the CRC per invocation
+	 */
+	public CompositeCrcVerifier(final int cacheLimit, final int chunkSize) {
+		this.chunkSize = chunkSize;
+		// the access order, so the least recently used value is evicted when the limit is exceeded
+		expectedCrcs = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+			@Override
+			protected final boolean removeEldestEntry(final Map.Entry<String, Integer> eldest) {
+				if(size() > cacheLimit) {
+					cacheEvictCount.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 @return true if the verification is started for the operation, false otherwise
+	 */
+	public boolean started(final Operation<?> operation) {
+		return calculations.containsKey(operation);
+	}
+
+	/**
+	 Starts the verification, the expected content CRC is calculated by the subsequent
+	 {@link #calculate(Operation)} invocations if it's not cached
+	 @param checksum the file checksum calculated in the composite CRC mode
+	 @throws IOException if the file checksum is not the composite CRC or the CRC type is not supported
+	 */
+	public void start(final Operation<?> operation, final DataItem fileItem, final FileChecksum checksum)
+	throws IOException {
+		if(! (checksum instanceof CompositeCrcFileChecksum)) {
+			throw new IOException("Not a composite CRC file checksum: " + checksum);
+		}
+		final int actualCrc = CrcUtil.readInt(checksum.getBytes(), 0);
+		final DataChecksum.Type crcType = checksum.getChecksumOpt().getChecksumType();
+		final String key = fileItem.isUpdated() ?
+			null : crcType + "/" + fileItem.offset() + "/" + fileItem.size() + "/" + fileItem.layer();
+		final Calculation calc = new Calculation(fileItem, actualCrc, key);
+		final Integer expectedCrc;
+		if(key == null) {
+			expectedCrc = null;
+		} else {
+			synchronized(expectedCrcs) {
+				expectedCrc = expectedCrcs.get(key);
+			}
+		}
+		if(expectedCrc == null) {
+			switch(crcType) {
+				case CRC32:
+					calc.crc = new CRC32();
+					break;
+				case CRC32C:
+					calc.crc = new CRC32C();
+					break;
+				default:
+					throw new IOException("Unsupported CRC type: " + crcType);
+			}
+			nextContent(calc);
+		} else {
+			cacheHitCount.increment();
+			calc.expectedCrc = expectedCrc;
+			calc.done = true;
+		}
+		calculations.put(operation, calc);
+	}
+
+	/**
+	 Calculates the CRC of the next expected content chunk
+	 @return true if the expected content CRC is calculated, false otherwise
+	 */
+	public boolean calculate(final Operation<?> operation)
+	throws IOException {
+		final Calculation calc = calculations.get(operation);
+		if(calc.done) {
+			return true;
+		}
+		final long t = System.nanoTime();
+		final ByteBuffer buff = crcBuff(calc.contentRemainingSize);
+		if(calc.contentRemainingSize < buff.capacity()) {
+			buff.limit((int) calc.contentRemainingSize);
+		}
+		final int n = calc.content.read(buff);
+		if(n > 0) {
+			buff.flip();
+			calc.crc.update(buff);
+			calc.contentRemainingSize -= n;
+		} else {
+			calc.contentRemainingSize = 0;
+		}
+		if(calc.contentRemainingSize == 0) {
+			nextContent(calc);
+		}
+		calcNanos.add(System.nanoTime() - t);
+		if(calc.done) {
+			calcCount.increment();
+			calc.expectedCrc = (int) calc.crc.getValue();
+			if(calc.key != null) {
+				synchronized(expectedCrcs) {
+					expectedCrcs.put(calc.key, calc.expectedCrc);
+				}
+			}
+		}
+		return calc.done;
+	}
+
+	/**
+	 Switches the calculation to the next updated range or to the end if the file is not updated
+	 */
+	private static void nextContent(final Calculation calc)
+	throws IOException {
+		final DataItem fileItem = calc.fileItem;
+		final long fileSize = fileItem.size();
+		if(calc.key == null) {
+			// the updated ranges have the next layer content
+			calc.rangeIdx ++;
+			final long rangeOffset = rangeOffset(calc.rangeIdx);
+			if(calc.rangeIdx < rangeCount(fileSize) && rangeOffset < fileSize) {
+				calc.content = fileItem.slice(
+					rangeOffset, Math.min(fileSize, rangeOffset(calc.rangeIdx + 1)) - rangeOffset
+				);
+				if(fileItem.isRangeUpdated(calc.rangeIdx)) {
+					calc.content.layer(fileItem.layer() + 1);
+				}
+			} else {
+				calc.content = null;
+			}
+		} else if(calc.content == null) {
+			calc.content = fileItem.slice(0, fileSize);
+		} else {
+			calc.content = null;
+		}
+		if(calc.content == null) {
+			calc.contentRemainingSize = 0;
+			calc.done = true;
+		} else {
+			calc.content.position(0);
+			calc.contentRemainingSize = calc.content.size();
+		}
+	}
+
+	private ByteBuffer crcBuff(final long size) {
+		final int minCapacity = size < chunkSize ? (int) size : chunkSize;
+		ByteBuffer buff = crcBuff.get();
+		if(buff == null || buff.capacity() < minCapacity) {
+			buff = ByteBuffer.allocateDirect(
+				Math.min(chunkSize, minCapacity <= 1 ? 1 : Integer.highestOneBit(minCapacity - 1) << 1)
+			);
+			crcBuff.set(buff);
+		}
+		buff.clear();
+		return buff;
+	}
+
+	/**
+	 Completes the verification, should be invoked after the {@link #calculate(Operation)} returned true
+	 @return true if the file's composite CRC matches the expected content CRC, false otherwise
+	 */
+	public boolean finish(final Operation<?> operation) {
+		final Calculation calc = calculations.remove(operation);
+		verifyCount.increment();
+		if(calc.actualCrc == calc.expectedCrc) {
+			return true;
+		}
+		mismatchCount.increment();
+		return false;
+	}
+
+	/**
+	 Discards the not finished verification of the operation
+	 */
+	public void discard(final Operation<?> operation) {
+		calculations.remove(operation);
+	}
+
+	@Override
+	public String toString() {
+		final long count = calcCount.sum();
+		return "verified files: " + verifyCount.sum() + ", mismatches: " + mismatchCount.sum()
+			+ ", expected CRC cache hits: " + cacheHitCount.sum() + ", evictions: " + cacheEvictCount.sum()
+			+ ", calculated: " + count
+			+ ", mean calculation time: "
+			+ (count > 0 ? TimeUnit.NANOSECONDS.toMillis(calcNanos.sum() / count) : 0) + "[ms]";
+	}
+}
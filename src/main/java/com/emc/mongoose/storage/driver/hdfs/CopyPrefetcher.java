@@ -0,0 +1,185 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.emc.mongoose.base.item.op.Operation;
+import com.emc.mongoose.base.logging.Loggers;
+import org.apache.hadoop.fs.FSDataInputStream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.emc.mongoose.base.storage.driver.StorageDriver.BUFF_SIZE_MIN;
+import static com.github.akurilov.commons.lang.Exceptions.throwUnchecked;
+
+/**
+ Reads the source file chunks ahead for the copy operations: while the I/O thread writes the current chunk
+ to the destination file the next chunk is being read by the prefetch thread into the second buffer. The
+ positioned reads are used, so the source input stream position is not shared with the prefetch threads.
+ The buffers are heap ones as far as the DFS output stream accepts only the byte arrays, they are sized by
+ the file size (up to the max buffer size) and reused by the subsequent copy operations. If the pool queue
+ is full the chunk is read by the calling thread.
+ */
+public final class CopyPrefetcher
+implements AutoCloseable {
+
+	private static final class Prefetch {
+
+		byte[] readBuff;
+		byte[] writeBuff;
+		long readPos;
+		Future<Integer> read = null;
+
+		Prefetch(final byte[] readBuff, final byte[] writeBuff, final long readPos) {
+			this.readBuff = readBuff;
+			this.writeBuff = writeBuff;
+			this.readPos = readPos;
+		}
+	}
+
+	private static final long TERMINATION_TIMEOUT_MILLIS = 10_000;
+
+	private final String name;
+	private final ThreadPoolExecutor executor;
+	private final HeapBuffPool buffPool;
+	private final ConcurrentMap<Operation<?>, Prefetch> prefetches = new ConcurrentHashMap<>();
+	private final LongAdder readCount = new LongAdder();
+	private final LongAdder readNanos = new LongAdder();
+	private final LongAdder stallCount = new LongAdder();
+
+	public CopyPrefetcher(
+		final String threadNamePrefix, final int threads, final int queueLimit, final int buffSize
+	) {
+		this.name = threadNamePrefix;
+		// each prefetch thread fills one buffer at a time, so keep the free ones for the next operations only
+		buffPool = new HeapBuffPool(BUFF_SIZE_MIN, buffSize, 2 * threads);
+		final AtomicInteger threadNum = new AtomicInteger(0);
+		executor = new ThreadPoolExecutor(
+			threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueLimit),
+			task -> {
+				final Thread thread = new Thread(task, threadNamePrefix + "#" + threadNum.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			},
+			new ThreadPoolExecutor.CallerRunsPolicy()
+		);
+	}
+
+	/**
+	 Returns the prefetched chunk and starts to read the following one
+	 @param pos the source file position to start the copy from, used only by the 1st invocation
+	 @return the source file chunk or null if it is not read yet
+	 @throws EOFException if the source file is shorter than the expected size
+	 */
+	public ByteBuffer next(
+		final Operation<?> operation, final FSDataInputStream inputStream, final long pos, final long fileSize
+	) throws IOException {
+		Prefetch prefetch = prefetches.get(operation);
+		if(prefetch == null) {
+			final long remainingSize = fileSize - pos;
+			prefetch = new Prefetch(buffPool.take(remainingSize), buffPool.take(remainingSize), pos);
+			prefetches.put(operation, prefetch);
+			submitRead(prefetch, inputStream, fileSize);
+		}
+		if(! prefetch.read.isDone()) {
+			stallCount.increment();
+			return null;
+		}
+		final int n;
+		try {
+			n = prefetch.read.get();
+		} catch(final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if(cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		} catch(final InterruptedException e) {
+			throwUnchecked(e);
+			return null;
+		}
+		if(n < 0) {
+			throw new EOFException("Unexpected end of the source file at the position " + prefetch.readPos);
+		}
+		final byte[] readyBuff = prefetch.readBuff;
+		prefetch.readBuff = prefetch.writeBuff;
+		prefetch.writeBuff = readyBuff;
+		prefetch.readPos += n;
+		if(prefetch.readPos < fileSize) {
+			submitRead(prefetch, inputStream, fileSize);
+		} else {
+			prefetch.read = null;
+		}
+		return ByteBuffer.wrap(readyBuff, 0, n);
+	}
+
+	private void submitRead(
+		final Prefetch prefetch, final FSDataInputStream inputStream, final long fileSize
+	) {
+		final byte[] buff = prefetch.readBuff;
+		final long pos = prefetch.readPos;
+		final long remainingSize = fileSize - pos;
+		prefetch.read = executor.submit(
+			() -> {
+				final long t = System.nanoTime();
+				try {
+					return inputStream.read(
+						pos, buff, 0, remainingSize > buff.length ? buff.length : (int) remainingSize
+					);
+				} finally {
+					readNanos.add(System.nanoTime() - t);
+					readCount.increment();
+				}
+			}
+		);
+	}
+
+	/**
+	 Releases the operation's buffers. The buffer being read into by the prefetch thread is not reused.
+	 */
+	public void release(final Operation<?> operation) {
+		final Prefetch prefetch = prefetches.remove(operation);
+		if(prefetch != null) {
+			buffPool.release(prefetch.writeBuff);
+			if(prefetch.read == null || prefetch.read.isDone()) {
+				buffPool.release(prefetch.readBuff);
+			} else {
+				prefetch.read.cancel(false);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+		try {
+			if(! executor.awaitTermination(TERMINATION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+				Loggers.ERR.warn(
+					"{}: {} prefetch reads are not interrupted in {}[ms], abandoned", name, executor.getActiveCount(),
+					TERMINATION_TIMEOUT_MILLIS
+				);
+			}
+		} catch(final InterruptedException e) {
+			throwUnchecked(e);
+		} finally {
+			prefetches.clear();
+			buffPool.clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		final long count = readCount.sum();
+		return "prefetch reads: " + count + ", mean read time: "
+			+ (count > 0 ? TimeUnit.NANOSECONDS.toMicros(readNanos.sum() / count) : 0)
+			+ "[us], not ready yet: " + stallCount.sum();
+	}
+}
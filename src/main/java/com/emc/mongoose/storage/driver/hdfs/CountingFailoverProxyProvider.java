@@ -0,0 +1,120 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.server.namenode.ha.ConfiguredFailoverProxyProvider;
+import org.apache.hadoop.hdfs.server.namenode.ha.HAProxyFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ The configured failover proxy provider which counts the failovers and measures the failover latency: the
+ time since the failover is requested until the first namenode call succeeds after it. The provider is
+ instantiated by the HDFS client via reflection, so it finds the counters to update by the id set in the
+ Hadoop configuration, the counters are registered by the driver which owns the configuration.
+ */
+public class CountingFailoverProxyProvider<T>
+extends ConfiguredFailoverProxyProvider<T> {
+
+	public static final String COUNTERS_ID_KEY = "mongoose.storage.driver.hdfs.failover.countersId";
+	private static final ConcurrentMap<String, Counters> COUNTERS = new ConcurrentHashMap<>();
+
+	public static final class Counters {
+
+		private final LongAdder failoverCount = new LongAdder();
+		private final LongAdder failoverDoneCount = new LongAdder();
+		private final LongAdder failoverNanos = new LongAdder();
+
+		public long failoverCount() {
+			return failoverCount.sum();
+		}
+
+		public long failoverDoneCount() {
+			return failoverDoneCount.sum();
+		}
+
+		public long failoverNanos() {
+			return failoverNanos.sum();
+		}
+	}
+
+	private final Counters counters;
+	private final AtomicLong failoverStartNanos = new AtomicLong(0);
+	private ProxyInfo<T> lastProxyInfo = null;
+	private ProxyInfo<T> lastWrappedProxyInfo = null;
+
+	public CountingFailoverProxyProvider(
+		final Configuration conf, final URI uri, final Class<T> xface, final HAProxyFactory<T> factory
+	) {
+		super(conf, uri, xface, factory);
+		final String countersId = conf.get(COUNTERS_ID_KEY);
+		final Counters registeredCounters = countersId == null ? null : COUNTERS.get(countersId);
+		// not registered counters are not reported by anyone
+		counters = registeredCounters == null ? new Counters() : registeredCounters;
+	}
+
+	/**
+	 @param countersId the value of the {@link #COUNTERS_ID_KEY} in the Hadoop configuration
+	 @return the new counters updated by the providers created with the given configuration
+	 */
+	public static Counters register(final String countersId) {
+		final Counters counters = new Counters();
+		COUNTERS.put(countersId, counters);
+		return counters;
+	}
+
+	public static void unregister(final String countersId) {
+		COUNTERS.remove(countersId);
+	}
+
+	@Override
+	public synchronized ProxyInfo<T> getProxy() {
+		final ProxyInfo<T> proxyInfo = super.getProxy();
+		if(proxyInfo != lastProxyInfo) {
+			lastProxyInfo = proxyInfo;
+			lastWrappedProxyInfo = new ProxyInfo<>(wrap(proxyInfo.proxy), proxyInfo.proxyInfo);
+		}
+		return lastWrappedProxyInfo;
+	}
+
+	@Override
+	public void performFailover(final T currentProxy) {
+		counters.failoverCount.increment();
+		failoverStartNanos.compareAndSet(0, System.nanoTime());
+		super.performFailover(currentProxy);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T wrap(final T proxy) {
+		final Set<Class<?>> ifaces = new LinkedHashSet<>();
+		for(Class<?> cls = proxy.getClass(); cls != null; cls = cls.getSuperclass()) {
+			for(final Class<?> iface : cls.getInterfaces()) {
+				ifaces.add(iface);
+			}
+		}
+		return (T) Proxy.newProxyInstance(
+			proxy.getClass().getClassLoader(), ifaces.toArray(new Class<?>[0]),
+			(wrapper, method, args) -> {
+				final Object result;
+				try {
+					result = method.invoke(proxy, args);
+				} catch(final InvocationTargetException e) {
+					throw e.getCause();
+				}
+				final long t = failoverStartNanos.get();
+				if(t != 0 && failoverStartNanos.compareAndSet(t, 0)) {
+					counters.failoverNanos.add(System.nanoTime() - t);
+					counters.failoverDoneCount.increment();
+				}
+				return result;
+			}
+		);
+	}
+}
@@ -0,0 +1,65 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+/**
+ Selects the endpoint (by index) for the next operation and tracks the completed operations results
+ */
+public interface EndpointBalancer {
+
+	String TYPE_ROUND_ROBIN = "rr";
+	String TYPE_LEAST_OPS = "leastOps";
+	String TYPE_EWMA = "ewma";
+	String TYPE_POWER_OF_TWO_CHOICES = "p2c";
+
+	/**
+	 @return the index of the endpoint to use for the next operation
+	 */
+	int select();
+
+	/**
+	 Claims the single probe of the ejected endpoint which ejection period is over
+	 @return the index of the endpoint to probe by the next operation or -1 if there's no such endpoint
+	 */
+	int probe();
+
+	/**
+	 @return true if the endpoint is not ejected currently
+	 */
+	boolean available(final int endpointIdx);
+
+	/**
+	 Account the operation started on the given endpoint
+	 */
+	void started(final int endpointIdx);
+
+	/**
+	 Account the operation completed on the given endpoint
+	 @param durationMicros the operation duration, ignored if the operation failed
+	 @param failed true if the operation failed due to the endpoint I/O failure
+	 @param probe true if the operation is the probe, see {@link #probe()}
+	 */
+	void completed(final int endpointIdx, final long durationMicros, final boolean failed, final boolean probe);
+
+	static EndpointBalancer newInstance(
+		final String type, final String[] endpointAddrs, final double ewmaAlpha, final int ejectFailures,
+		final long ejectPeriodMillis
+	) {
+		switch(type) {
+			case TYPE_ROUND_ROBIN:
+				return new RoundRobinEndpointBalancer(
+					endpointAddrs, ewmaAlpha, ejectFailures, ejectPeriodMillis
+				);
+			case TYPE_LEAST_OPS:
+				return new LeastOpsEndpointBalancer(
+					endpointAddrs, ewmaAlpha, ejectFailures, ejectPeriodMillis
+				);
+			case TYPE_EWMA:
+				return new EwmaEndpointBalancer(endpointAddrs, ewmaAlpha, ejectFailures, ejectPeriodMillis);
+			case TYPE_POWER_OF_TWO_CHOICES:
+				return new PowerOfTwoChoicesEndpointBalancer(
+					endpointAddrs, ewmaAlpha, ejectFailures, ejectPeriodMillis
+				);
+			default:
+				throw new IllegalArgumentException("Unknown endpoint balancer type: " + type);
+		}
+	}
+}
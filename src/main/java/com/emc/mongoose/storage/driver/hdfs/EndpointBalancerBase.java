@@ -0,0 +1,173 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.emc.mongoose.base.logging.Loggers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ Tracks the outstanding operations count, the EWMA of the operations duration and the consecutive
+ failures count per endpoint without locking. An endpoint is ejected for the configured period after the
+ configured count of the consecutive failures. When the period expires a single probe operation is let to
+ the endpoint (see {@link #probe()}), the endpoint is returned back on the probe success or ejected again
+ otherwise. The caller tracks which operation is the probe, so the other operations completed while the
+ endpoint is ejected (e.g. started before the ejection) don't return it back. The implementations should
+ choose among the {@link #eligible(int)} endpoints only.
+ */
+public abstract class EndpointBalancerBase
+implements EndpointBalancer {
+
+	protected final String[] endpointAddrs;
+	protected final int endpointCount;
+	protected final AtomicIntegerArray outstandingOps;
+	protected final AtomicLongArray durationEwma;
+	private final double ewmaAlpha;
+	private final AtomicIntegerArray consecutiveFailures;
+	private final AtomicLongArray ejectedUntil;
+	private final AtomicIntegerArray ejectionCounts;
+	private final int ejectFailures;
+	private final long ejectPeriodNanos;
+	private final AtomicInteger rrc = new AtomicInteger(0);
+
+	protected EndpointBalancerBase(
+		final String[] endpointAddrs, final double ewmaAlpha, final int ejectFailures,
+		final long ejectPeriodMillis
+	) {
+		this.endpointAddrs = endpointAddrs;
+		this.endpointCount = endpointAddrs.length;
+		this.outstandingOps = new AtomicIntegerArray(endpointCount);
+		this.durationEwma = new AtomicLongArray(endpointCount);
+		this.ewmaAlpha = ewmaAlpha;
+		this.consecutiveFailures = new AtomicIntegerArray(endpointCount);
+		this.ejectedUntil = new AtomicLongArray(endpointCount);
+		this.ejectionCounts = new AtomicIntegerArray(endpointCount);
+		this.ejectFailures = ejectFailures;
+		this.ejectPeriodNanos = TimeUnit.MILLISECONDS.toNanos(ejectPeriodMillis);
+	}
+
+	protected final int nextRoundRobinIndex() {
+		// mask the sign bit to not to go negative after the counter overflow
+		return (rrc.getAndIncrement() & Integer.MAX_VALUE) % endpointCount;
+	}
+
+	/**
+	 @return the chosen endpoint index or -1 if no endpoint is available
+	 */
+	protected abstract int choose();
+
+	/**
+	 @return true if the endpoint is not ejected or the ejection period is over
+	 */
+	protected final boolean eligible(final int endpointIdx) {
+		final long t = ejectedUntil.get(endpointIdx);
+		return t == 0 || t <= System.nanoTime();
+	}
+
+	@Override
+	public final int select() {
+		if(endpointCount == 1) {
+			return 0;
+		}
+		final int i = choose();
+		if(i < 0) {
+			// all endpoints are ejected
+			return nextRoundRobinIndex();
+		}
+		if(available(i)) {
+			return i;
+		}
+		// the ejection period is over but the endpoint is not returned back by the probe yet
+		int j;
+		for(int k = 0; k < endpointCount; k ++) {
+			j = nextRoundRobinIndex();
+			if(available(j)) {
+				return j;
+			}
+		}
+		return nextRoundRobinIndex();
+	}
+
+	@Override
+	public final int probe() {
+		long now = 0;
+		long t;
+		for(int i = 0; i < endpointCount; i ++) {
+			t = ejectedUntil.get(i);
+			if(t != 0) {
+				if(now == 0) {
+					now = System.nanoTime();
+				}
+				// prolong the ejection until the probe completes, so the concurrent callers don't probe again
+				if(t <= now && ejectedUntil.compareAndSet(i, t, now + ejectPeriodNanos)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public final boolean available(final int endpointIdx) {
+		return ejectedUntil.get(endpointIdx) == 0;
+	}
+
+	@Override
+	public final void started(final int endpointIdx) {
+		outstandingOps.incrementAndGet(endpointIdx);
+	}
+
+	@Override
+	public final void completed(
+		final int endpointIdx, final long durationMicros, final boolean failed, final boolean probe
+	) {
+		if(outstandingOps.decrementAndGet(endpointIdx) < 0) {
+			outstandingOps.set(endpointIdx, 0);
+		}
+		if(failed) {
+			if(
+				ejectFailures > 0
+					&& (consecutiveFailures.incrementAndGet(endpointIdx) >= ejectFailures || probe)
+			) {
+				ejectedUntil.set(endpointIdx, System.nanoTime() + ejectPeriodNanos);
+				ejectionCounts.incrementAndGet(endpointIdx);
+				Loggers.MSG.info(
+					"Endpoint {} is ejected for {}[ms] after {} consecutive failures",
+					endpointAddrs[endpointIdx], TimeUnit.NANOSECONDS.toMillis(ejectPeriodNanos),
+					consecutiveFailures.get(endpointIdx)
+				);
+			}
+		} else {
+			if(probe) {
+				consecutiveFailures.set(endpointIdx, 0);
+				ejectedUntil.set(endpointIdx, 0);
+				Loggers.MSG.info(
+					"Endpoint {} is returned back after the probe success", endpointAddrs[endpointIdx]
+				);
+			} else if(consecutiveFailures.get(endpointIdx) > 0 && ejectedUntil.get(endpointIdx) == 0) {
+				consecutiveFailures.set(endpointIdx, 0);
+			}
+			if(durationMicros > 0) {
+				final long prevEwma = durationEwma.get(endpointIdx);
+				final long nextEwma = prevEwma == 0 ?
+					durationMicros : (long) (prevEwma + ewmaAlpha * (durationMicros - prevEwma));
+				// the lost update is not a problem here
+				durationEwma.compareAndSet(endpointIdx, prevEwma, nextEwma);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder(getClass().getSimpleName()).append(':');
+		for(int i = 0; i < endpointCount; i ++) {
+			sb
+				.append("\n\t").append(endpointAddrs[i])
+				.append(": outstanding ops: ").append(outstandingOps.get(i))
+				.append(", duration EWMA[us]: ").append(durationEwma.get(i))
+				.append(", ejections: ").append(ejectionCounts.get(i));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,34 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+/**
+ Chooses the endpoint with the least expected wait: the EWMA of the operation duration multiplied by the
+ outstanding operations count (plus one for the operation being scheduled).
+ */
+public final class EwmaEndpointBalancer
+extends EndpointBalancerBase {
+
+	public EwmaEndpointBalancer(
+		final String[] endpointAddrs, final double ewmaAlpha, final int ejectFailures,
+		final long ejectPeriodMillis
+	) {
+		super(endpointAddrs, ewmaAlpha, ejectFailures, ejectPeriodMillis);
+	}
+
+	@Override
+	protected final int choose() {
+		final int offset = nextRoundRobinIndex();
+		int bestIdx = -1;
+		long minCost = Long.MAX_VALUE;
+		int i;
+		long cost;
+		for(int j = 0; j < endpointCount; j ++) {
+			i = (offset + j) % endpointCount;
+			cost = durationEwma.get(i) * (outstandingOps.get(i) + 1);
+			if(cost < minCost && eligible(i)) {
+				minCost = cost;
+				bestIdx = i;
+			}
+		}
+		return bestIdx;
+	}
+}
@@ -0,0 +1,38 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+/**
+ Defines when the written data is flushed to the datanodes pipeline while the output file is open.
+ The data is flushed anyway when the file is closed.
+ */
+public enum FlushPolicy {
+
+	/** The data is flushed after each chunk written (the default behavior) */
+	PER_CHUNK("perChunk"),
+	/** The data is not flushed until the file is closed */
+	NONE("none"),
+	/** The data is flushed (hflush) to the datanodes memory every configured count of bytes */
+	HFLUSH("hflush"),
+	/** The data is synced (hsync) to the datanodes disks every configured count of bytes and at the end */
+	HSYNC("hsync");
+
+	private final String configName;
+
+	FlushPolicy(final String configName) {
+		this.configName = configName;
+	}
+
+	public static FlushPolicy fromConfigName(final String configName)
+	throws IllegalArgumentException {
+		for(final FlushPolicy flushPolicy : values()) {
+			if(flushPolicy.configName.equals(configName)) {
+				return flushPolicy;
+			}
+		}
+		throw new IllegalArgumentException("Unknown flush policy: \"" + configName + "\"");
+	}
+
+	@Override
+	public String toString() {
+		return configName;
+	}
+}
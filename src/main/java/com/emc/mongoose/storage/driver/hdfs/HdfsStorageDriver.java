@@ -24,28 +24,51 @@ import com.github.akurilov.confuse.Config;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileChecksum;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Options;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.hdfs.DFSHedgedReadMetrics;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+import org.apache.hadoop.hdfs.HedgedReadMetricsAccess;
+import org.apache.hadoop.hdfs.client.HdfsDataOutputStream;
 import org.apache.hadoop.security.AccessControlException;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.logging.log4j.Level;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.emc.mongoose.base.item.DataItem.rangeCount;
 import static com.emc.mongoose.base.item.DataItem.rangeOffset;
 import static com.emc.mongoose.base.item.op.Operation.Status.ACTIVE;
 import static com.emc.mongoose.base.item.op.Operation.Status.FAIL_IO;
+import static com.emc.mongoose.base.item.op.Operation.Status.FAIL_TIMEOUT;
 import static com.emc.mongoose.base.item.op.Operation.Status.FAIL_UNKNOWN;
 import static com.emc.mongoose.base.item.op.Operation.Status.RESP_FAIL_AUTH;
 import static com.emc.mongoose.base.item.op.Operation.Status.RESP_FAIL_CLIENT;
@@ -53,22 +76,113 @@ import static com.emc.mongoose.base.item.op.Operation.Status.RESP_FAIL_CORRUPT;
 import static com.emc.mongoose.base.item.op.Operation.Status.RESP_FAIL_UNKNOWN;
 import static com.emc.mongoose.base.storage.driver.StorageDriver.BUFF_SIZE_MAX;
 import static com.emc.mongoose.base.storage.driver.StorageDriver.BUFF_SIZE_MIN;
+import static com.github.akurilov.commons.lang.Exceptions.throwUnchecked;
 import static com.github.akurilov.commons.system.DirectMemUtil.REUSABLE_BUFF_SIZE_MAX;
+import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_CHECKSUM_COMBINE_MODE_KEY;
+import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_HA_NAMENODES_KEY_PREFIX;
+import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_NAMENODE_RPC_ADDRESS_KEY;
+import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_NAMESERVICES;
+import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.Failover.PROXY_PROVIDER_KEY_PREFIX;
+import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.HedgedRead.THREADPOOL_SIZE_KEY;
+import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.HedgedRead.THRESHOLD_MILLIS_KEY;
 
 public class HdfsStorageDriver<I extends Item, O extends Operation<I>>
 extends NioStorageDriverBase<I, O> {
 
+	private static final ThreadLocal<ByteBuffer> IO_BUFF = new ThreadLocal<>();
+
 	protected final String uriSchema;
 	protected final Configuration hadoopConfig;
 	protected final FsPermission defaultFsPerm;
 	protected final String[] endpointAddrs;
+	protected final FileSystem[] endpoints;
+	protected final int clientShards;
+	protected final FileSystem[][] endpointClients;
+	private final AtomicIntegerArray clientShardOps;
+	private final AtomicIntegerArray clientShardPeakOps;
 	protected final int nodePort;
-	private final AtomicInteger rrc = new AtomicInteger(0);
+	protected final String haNameService;
 	private final ConcurrentMap<DataOperation<? extends DataItem>, FSDataInputStream>
 		fileInputStreams = new ConcurrentHashMap<>();
 	private final ConcurrentMap<DataOperation<? extends DataItem>, FSDataOutputStream>
 		fileOutputStreams = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, FileSystem> extraEndpoints = new ConcurrentHashMap<>();
 	private final UserGroupInformation ugi;
+	protected final EndpointBalancer endpointBalancer;
+	// the operations prepared to be executed on the configured endpoint mapped to the probe flag
+	private final ConcurrentMap<Operation<? extends Item>, Boolean> preparedEndpointOps =
+		new ConcurrentHashMap<>();
+	private final ConcurrentMap<Operation<? extends Item>, Boolean> startedEndpointOps =
+		new ConcurrentHashMap<>();
+	protected final ReadLocalityStats readLocalityStats;
+	protected final NameSpaceRouter nameSpaceRouter;
+	private final String failoverCountersId;
+	private final CountingFailoverProxyProvider.Counters failoverCounters;
+	protected final int hedgedReadThreads;
+	protected final SharedInputStreams sharedInputStreams;
+	protected final boolean readCacheEnabled;
+	protected final boolean readCoalesce;
+	protected final long readCoalesceGap;
+	protected final long readCoalesceLimit;
+	private final ConcurrentMap<DataOperation<? extends DataItem>, RangeReadPlan> rangeReadPlans =
+		new ConcurrentHashMap<>();
+	private final LongAdder coalescedRangeCount = new LongAdder();
+	private final LongAdder coalescedReadCount = new LongAdder();
+	private final LongAdder coalescedLogicalBytes = new LongAdder();
+	private final LongAdder coalescedPhysicalBytes = new LongAdder();
+	private final DFSHedgedReadMetrics hedgedReadMetrics;
+	private final long hedgedReadOpsBefore;
+	private final long hedgedReadWinsBefore;
+	protected final BlockLayoutRules blockLayoutRules;
+	protected final String ecPolicy;
+	protected final boolean ecPolicyOnDir;
+	private final Set<Path> ecPolicyDirs = ConcurrentHashMap.newKeySet();
+	private final LongAdder ecFileCount = new LongAdder();
+	private final StripedReadStats stripedReadStats = new StripedReadStats();
+	protected final AsyncCloser asyncCloser;
+	protected final CopyPrefetcher copyPrefetcher;
+	protected final VerifyPipeline verifyPipeline;
+	protected final CompositeCrcVerifier compositeCrcVerifier;
+	private final ConcurrentMap<DataOperation<? extends DataItem>, Long> copyStartTimes =
+		new ConcurrentHashMap<>();
+	private final LongAdder copyCount = new LongAdder();
+	private final LongAdder copyBytes = new LongAdder();
+	private final LongAdder copyNanos = new LongAdder();
+	protected final boolean updateTruncate;
+	protected final boolean updateTailCut;
+	private final TruncateRecovery truncateRecovery;
+	private final ConcurrentMap<DataOperation<? extends DataItem>, RangeUpdate> rangeUpdates =
+		new ConcurrentHashMap<>();
+	private final LongAdder concatCount = new LongAdder();
+	private final LongAdder concatSrcCount = new LongAdder();
+	private final LongAdder concatBytes = new LongAdder();
+	private final LongAdder concatNanos = new LongAdder();
+	private final LongAdder rangeRewriteCount = new LongAdder();
+	private final LongAdder rangeTruncateAppendCount = new LongAdder();
+	private final LongAdder rangeUpdateLogicalBytes = new LongAdder();
+	private final LongAdder rangeUpdatePhysicalBytes = new LongAdder();
+	protected final boolean packEnabled;
+	protected final long packContainerSize;
+	protected final long packItemSizeLimit;
+	// the containers by the I/O thread id and the directory path
+	private final ConcurrentMap<String, PackContainer> packContainers = new ConcurrentHashMap<>();
+	private final LongAdder packedItemCount = new LongAdder();
+	private final LongAdder packContainerCount = new LongAdder();
+	protected final int multipartParts;
+	protected final long multipartThreshold;
+	private final ConcurrentMap<DataOperation<? extends DataItem>, MultipartCreate> multipartCreates =
+		new ConcurrentHashMap<>();
+	private final LongAdder multipartCreateCount = new LongAdder();
+	private final LongAdder multipartPartCount = new LongAdder();
+	private final LongAdder multipartConcatNanos = new LongAdder();
+	protected final String storagePolicy;
+	private final Set<Path> storagePolicyDirs = ConcurrentHashMap.newKeySet();
+	protected final StoragePolicySatisfier storagePolicySatisfier;
+	protected final FlushPolicy flushPolicy;
+	protected final long flushInterval;
+	protected final boolean flushUpdateLength;
+	private final LongAdder flushCount = new LongAdder();
+	private final LongAdder flushNanos = new LongAdder();
 	protected int inBuffSize = BUFF_SIZE_MIN;
 	protected int outBuffSize = BUFF_SIZE_MAX;
 
@@ -80,6 +194,8 @@ extends NioStorageDriverBase<I, O> {
 		this.uriSchema = uriSchema;
 		hadoopConfig = new Configuration();
 		hadoopConfig.setClassLoader(getClass().getClassLoader());
+		final Config hdfsConfig = storageConfig.configVal("driver-hdfs");
+		applyHadoopConfig(hdfsConfig.listVal("confFiles"), hdfsConfig.mapVal("conf"));
 		defaultFsPerm = FsPermission
 			.getDefault()
 			.applyUMask(FsPermission.getUMask(hadoopConfig));
@@ -93,37 +209,525 @@ extends NioStorageDriverBase<I, O> {
 		final Config nodeConfig = storageConfig.configVal("net-node");
 		nodePort = storageConfig.intVal("net-node-port");
 		final List<String> endpointAddrList = nodeConfig.listVal("addrs");
-		endpointAddrs = endpointAddrList.toArray(new String[endpointAddrList.size()]);
+		final Config haConfig = hdfsConfig.configVal("ha");
+		final String nameService = haConfig.stringVal("nameService");
+		final List<String> nameSpaceList = hdfsConfig.listVal("federation-nameSpaces");
+		if(nameSpaceList != null && ! nameSpaceList.isEmpty()) {
+			if(nameService != null && ! nameService.isEmpty()) {
+				throw new IllegalConfigurationException(
+					"The HA name service should be configured via the federation name spaces list"
+				);
+			}
+			haNameService = null;
+			failoverCountersId = null;
+			failoverCounters = null;
+			endpointAddrs = new String[nameSpaceList.size()];
+			for(int i = 0; i < endpointAddrs.length; i ++) {
+				final String nameSpaceUri = nameSpaceList.get(i);
+				if(nameSpaceUri.indexOf("://") < 1) {
+					throw new IllegalConfigurationException("Invalid name space URI: " + nameSpaceUri);
+				}
+				endpointAddrs[i] = nameSpaceUri.endsWith("/") ?
+					nameSpaceUri.substring(0, nameSpaceUri.length() - 1) : nameSpaceUri;
+			}
+			nameSpaceRouter = new NameSpaceRouter(endpointAddrs);
+			Loggers.MSG.info("{}: federated name spaces: {}", stepId, Arrays.toString(endpointAddrs));
+		} else if(nameService == null || nameService.isEmpty()) {
+			haNameService = null;
+			failoverCountersId = null;
+			failoverCounters = null;
+			endpointAddrs = endpointAddrList.toArray(new String[endpointAddrList.size()]);
+			nameSpaceRouter = null;
+		} else {
+			haNameService = nameService;
+			failoverCountersId = stepId + "#" + UUID.randomUUID();
+			failoverCounters = CountingFailoverProxyProvider.register(failoverCountersId);
+			configureHaNameService(endpointAddrList);
+			// the only logical endpoint, the HDFS client balances between the namenodes itself
+			endpointAddrs = new String[] { haNameService };
+			nameSpaceRouter = null;
+		}
+		final Config hedgedReadConfig = hdfsConfig.configVal("read-hedged");
+		hedgedReadThreads = hedgedReadConfig.intVal("threads");
+		if(hedgedReadThreads > 0) {
+			hadoopConfig.setInt(THREADPOOL_SIZE_KEY, hedgedReadThreads);
+			hadoopConfig.setLong(THRESHOLD_MILLIS_KEY, hedgedReadConfig.longVal("thresholdMillis"));
+		}
+		final Config readVerifyConfig = hdfsConfig.configVal("read-verify");
+		final String readVerifyMode = readVerifyConfig.stringVal("mode");
+		switch(readVerifyMode) {
+			case "content":
+				compositeCrcVerifier = null;
+				break;
+			case "compositeCrc":
+				// the datanodes should calculate the block checksums in the composite CRC mode
+				hadoopConfig.set(DFS_CHECKSUM_COMBINE_MODE_KEY, "COMPOSITE_CRC");
+				compositeCrcVerifier = new CompositeCrcVerifier(
+					readVerifyConfig.intVal("checksumCacheLimit"), REUSABLE_BUFF_SIZE_MAX
+				);
+				if(verifyFlag) {
+					Loggers.MSG.info("{}: the full read content is verified by the composite CRC", stepId);
+				}
+				break;
+			default:
+				throw new IllegalConfigurationException(
+					"Unknown read verification mode: \"" + readVerifyMode + "\""
+				);
+		}
+		endpoints = new FileSystem[endpointAddrs.length];
+		for(int i = 0; i < endpointAddrs.length; i ++) {
+			try {
+				// the cached HA file system may be created with another driver's failover counters id
+				endpoints[i] = haNameService == null ?
+					resolveEndpoint(endpointAddrs[i]) : resolveEndpointClient(endpointAddrs[i]);
+			} catch(final URISyntaxException | IOException e) {
+				throw new IllegalConfigurationException(
+					"Failed to resolve the endpoint \"" + endpointAddrs[i] + "\": " + e
+				);
+			}
+		}
+		if(hedgedReadThreads > 0 && endpoints[0] instanceof DistributedFileSystem) {
+			hedgedReadMetrics = HedgedReadMetricsAccess.hedgedReadMetrics(
+				(DistributedFileSystem) endpoints[0]
+			);
+			hedgedReadOpsBefore = hedgedReadMetrics.getHedgedReadOps();
+			hedgedReadWinsBefore = hedgedReadMetrics.getHedgedReadWins();
+		} else {
+			hedgedReadMetrics = null;
+			hedgedReadOpsBefore = 0;
+			hedgedReadWinsBefore = 0;
+		}
+		clientShards = hdfsConfig.intVal("endpoint-clients");
+		if(clientShards < 1) {
+			throw new IllegalConfigurationException("Endpoint clients count should be more than 0");
+		}
+		endpointClients = new FileSystem[endpointAddrs.length][clientShards];
+		for(int i = 0; i < endpointAddrs.length; i ++) {
+			// the 1st shard is the endpoint instance
+			endpointClients[i][0] = endpoints[i];
+			for(int j = 1; j < clientShards; j ++) {
+				try {
+					endpointClients[i][j] = resolveEndpointClient(endpointAddrs[i]);
+				} catch(final URISyntaxException | IOException e) {
+					throw new IllegalConfigurationException(
+						"Failed to resolve the endpoint \"" + endpointAddrs[i] + "\": " + e
+					);
+				}
+			}
+		}
+		clientShardOps = new AtomicIntegerArray(endpointAddrs.length * clientShards);
+		clientShardPeakOps = new AtomicIntegerArray(endpointAddrs.length * clientShards);
+		final Config balancerConfig = hdfsConfig.configVal("endpoint-balancer");
+		try {
+			endpointBalancer = EndpointBalancer.newInstance(
+				balancerConfig.stringVal("type"), endpointAddrs, balancerConfig.doubleVal("ewmaAlpha"),
+				balancerConfig.intVal("eject-failures"), balancerConfig.longVal("eject-periodMillis")
+			);
+		} catch(final IllegalArgumentException e) {
+			throw new IllegalConfigurationException(e.getMessage());
+		}
+		final Config blockConfig = hdfsConfig.configVal("block");
+		try {
+			blockLayoutRules = new BlockLayoutRules(
+				sizeVal(blockConfig.val("size")), (short) hdfsConfig.intVal("replication"),
+				blockConfig.listVal("rules")
+			);
+		} catch(final IllegalArgumentException e) {
+			throw new IllegalConfigurationException(e.getMessage());
+		}
+		final Config ecConfig = hdfsConfig.configVal("ec");
+		final String ecPolicyName = ecConfig.stringVal("policy");
+		ecPolicy = ecPolicyName == null || ecPolicyName.isEmpty() ? null : ecPolicyName;
+		switch(ecConfig.stringVal("target")) {
+			case "file":
+				ecPolicyOnDir = false;
+				break;
+			case "dir":
+				ecPolicyOnDir = true;
+				break;
+			default:
+				throw new IllegalConfigurationException(
+					"Unknown erasure coding policy target: \"" + ecConfig.stringVal("target") + "\""
+				);
+		}
+		if(ecPolicy != null) {
+			Loggers.MSG.info(
+				"{}: erasure coding policy \"{}\" is set on the created {}", stepId, ecPolicy,
+				ecPolicyOnDir ? "files' directories" : "files"
+			);
+		}
+		final Config updateConfig = hdfsConfig.configVal("update");
+		updateTruncate = updateConfig.boolVal("truncate");
+		updateTailCut = updateConfig.boolVal("tailCut");
+		truncateRecovery = new TruncateRecovery(updateConfig.longVal("truncatePollMillis"));
+		final Config packConfig = hdfsConfig.configVal("pack");
+		packEnabled = packConfig.boolVal("enabled");
+		packContainerSize = sizeVal(packConfig.val("containerSize"));
+		packItemSizeLimit = sizeVal(packConfig.val("itemSizeLimit"));
+		if(packEnabled) {
+			if(nameSpaceRouter != null) {
+				throw new IllegalConfigurationException(
+					"The small files packing is not supported for the federated name spaces"
+				);
+			}
+			if(packContainerSize <= 0) {
+				throw new IllegalConfigurationException(
+					"Invalid pack container size: " + packContainerSize
+				);
+			}
+			Loggers.MSG.info(
+				"{}: the items not larger than {} are packed into the containers of {}", stepId,
+				SizeInBytes.formatFixedSize(packItemSizeLimit), SizeInBytes.formatFixedSize(packContainerSize)
+			);
+		}
+		final Config multipartConfig = hdfsConfig.configVal("multipart");
+		multipartParts = multipartConfig.intVal("parts");
+		multipartThreshold = sizeVal(multipartConfig.val("threshold"));
+		if(multipartParts > 1) {
+			Loggers.MSG.info(
+				"{}: the files not smaller than {} are created by {} parts concurrently", stepId,
+				SizeInBytes.formatFixedSize(multipartThreshold), multipartParts
+			);
+		}
+		final Config closeConfig = hdfsConfig.configVal("close");
+		final int closeThreads = closeConfig.intVal("threads");
+		if(closeThreads > 0) {
+			asyncCloser = new AsyncCloser(
+				stepId + "-hdfs-close", closeThreads, closeConfig.intVal("queueLimit"),
+				closeConfig.longVal("timeoutMillis")
+			);
+		} else {
+			asyncCloser = null;
+		}
+		final Config copyConfig = hdfsConfig.configVal("copy");
+		final int copyThreads = copyConfig.intVal("threads");
+		if(copyThreads > 0) {
+			copyPrefetcher = new CopyPrefetcher(
+				stepId + "-hdfs-copy", copyThreads, copyConfig.intVal("queueLimit"), REUSABLE_BUFF_SIZE_MAX
+			);
+		} else {
+			copyPrefetcher = null;
+		}
+		final Config storagePolicyConfig = hdfsConfig.configVal("storagePolicy");
+		final String storagePolicyName = storagePolicyConfig.stringVal("name");
+		if(storagePolicyName == null || storagePolicyName.isEmpty()) {
+			if(storagePolicyConfig.boolVal("update")) {
+				throw new IllegalConfigurationException("The storage policy name to update to is not set");
+			}
+			storagePolicy = null;
+			storagePolicySatisfier = null;
+		} else if(storagePolicyConfig.boolVal("update")) {
+			storagePolicy = null;
+			storagePolicySatisfier = new StoragePolicySatisfier(
+				storagePolicyName, storagePolicyConfig.longVal("pollMillis"),
+				storagePolicyConfig.longVal("timeoutMillis")
+			);
+			Loggers.MSG.info(
+				"{}: the update operations change the files storage policy to \"{}\"", stepId,
+				storagePolicyName
+			);
+		} else {
+			storagePolicy = storagePolicyName;
+			storagePolicySatisfier = null;
+			Loggers.MSG.info(
+				"{}: storage policy \"{}\" is set on the created files' directories", stepId, storagePolicy
+			);
+		}
+		final Config flushConfig = hdfsConfig.configVal("flush");
+		try {
+			flushPolicy = FlushPolicy.fromConfigName(flushConfig.stringVal("policy"));
+		} catch(final IllegalArgumentException e) {
+			throw new IllegalConfigurationException(e.getMessage());
+		}
+		flushInterval = sizeVal(flushConfig.val("interval"));
+		flushUpdateLength = flushConfig.boolVal("updateLength");
+		final Config readCacheConfig = hdfsConfig.configVal("read-cache");
+		final int readCacheLimit = readCacheConfig.intVal("limit");
+		readCacheEnabled = readCacheLimit > 0;
+		if(readCacheEnabled || hdfsConfig.boolVal("read-shared")) {
+			sharedInputStreams = new SharedInputStreams(
+				readCacheLimit, readCacheConfig.longVal("ttlMillis"), this::closeInput
+			);
+		} else {
+			sharedInputStreams = null;
+		}
+		final Config readCoalesceConfig = hdfsConfig.configVal("read-coalesce");
+		readCoalesce = readCoalesceConfig.boolVal("enabled");
+		readCoalesceGap = sizeVal(readCoalesceConfig.val("gap"));
+		// the coalesced read should fit the reusable buffer
+		readCoalesceLimit = Math.min(sizeVal(readCoalesceConfig.val("limit")), REUSABLE_BUFF_SIZE_MAX);
+		if(readCoalesce && readCoalesceLimit <= 0) {
+			throw new IllegalConfigurationException("Invalid coalesced read size limit: " + readCoalesceLimit);
+		}
+		final int readVerifyThreads = readVerifyConfig.intVal("threads");
+		if(verifyFlag && readVerifyThreads > 0) {
+			verifyPipeline = new VerifyPipeline(
+				stepId + "-hdfs-verify", readVerifyThreads, readVerifyConfig.intVal("queueLimit"),
+				REUSABLE_BUFF_SIZE_MAX
+			);
+		} else {
+			verifyPipeline = null;
+		}
+		final Config readLocalityConfig = hdfsConfig.configVal("read-locality");
+		readLocalityStats = readLocalityConfig.boolVal("enabled") ? new ReadLocalityStats() : null;
 		requestAuthTokenFunc = null; // do not use
 		requestNewPathFunc = null; // do not use
 	}
 
+	private void applyHadoopConfig(final List<String> confFiles, final Map<String, Object> conf)
+	throws IllegalConfigurationException {
+		if(confFiles != null) {
+			for(final String confFile : confFiles) {
+				if(! Files.isReadable(Paths.get(confFile))) {
+					throw new IllegalConfigurationException(
+						"The Hadoop configuration file is not readable: " + confFile
+					);
+				}
+				hadoopConfig.addResource(new Path(confFile));
+				Loggers.MSG.info("{}: Hadoop configuration file loaded: {}", stepId, confFile);
+			}
+		}
+		if(conf != null && ! conf.isEmpty()) {
+			final StringBuilder sb = new StringBuilder();
+			for(final Map.Entry<String, Object> confEntry : conf.entrySet()) {
+				final String key = confEntry.getKey();
+				final Object val = confEntry.getValue();
+				if(val == null) {
+					hadoopConfig.unset(key);
+				} else if(val instanceof List) {
+					hadoopConfig.setStrings(
+						key, ((List<?>) val).stream().map(String::valueOf).toArray(String[]::new)
+					);
+				} else {
+					hadoopConfig.set(key, val.toString());
+				}
+				sb.append("\n\t").append(key).append(": ").append(hadoopConfig.get(key));
+			}
+			Loggers.MSG.info("{}: Hadoop configuration overrides:{}", stepId, sb);
+		}
+	}
+
+	private static long sizeVal(final Object rawVal) {
+		if(rawVal instanceof Number) {
+			return ((Number) rawVal).longValue();
+		} else {
+			return SizeInBytes.toFixedSize(rawVal.toString());
+		}
+	}
+
+	private void configureHaNameService(final List<String> nameNodeAddrs) {
+		final StringJoiner nameNodeIds = new StringJoiner(",");
+		for(int i = 0; i < nameNodeAddrs.size(); i ++) {
+			final String nameNodeId = "nn" + i;
+			final String nameNodeAddr = nameNodeAddrs.get(i);
+			nameNodeIds.add(nameNodeId);
+			hadoopConfig.set(
+				DFS_NAMENODE_RPC_ADDRESS_KEY + "." + haNameService + "." + nameNodeId,
+				nameNodeAddr.lastIndexOf(':') > 0 ? nameNodeAddr : nameNodeAddr + ':' + nodePort
+			);
+		}
+		hadoopConfig.set(DFS_NAMESERVICES, haNameService);
+		hadoopConfig.set(DFS_HA_NAMENODES_KEY_PREFIX + "." + haNameService, nameNodeIds.toString());
+		final String proxyProviderClsName = CountingFailoverProxyProvider.class.getName();
+		hadoopConfig.set(PROXY_PROVIDER_KEY_PREFIX + "." + haNameService, proxyProviderClsName);
+		hadoopConfig.set(CountingFailoverProxyProvider.COUNTERS_ID_KEY, failoverCountersId);
+		Loggers.MSG.info(
+			"{}: HA name service \"{}\", namenodes: {}, failover proxy provider: {}", stepId,
+			haNameService, nameNodeAddrs, proxyProviderClsName
+		);
+	}
+
 	protected final String getNextEndpointAddr() {
-		return endpointAddrs[rrc.getAndIncrement() % endpointAddrs.length];
+		return endpointAddrs[endpointBalancer.select()];
+	}
+
+	protected final int endpointIndex(final String nodeAddr) {
+		if(nodeAddr == null) {
+			return -1;
+		}
+		// the addresses assigned by prepare() are the same instances, try the identity first
+		for(int i = 0; i < endpointAddrs.length; i ++) {
+			if(endpointAddrs[i] == nodeAddr) {
+				return i;
+			}
+		}
+		for(int i = 0; i < endpointAddrs.length; i ++) {
+			if(nodeAddr.equals(endpointAddrs[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	protected final int clientShardIndex(final Operation<? extends Item> operation) {
+		return clientShards == 1 ? 0 : (System.identityHashCode(operation) & Integer.MAX_VALUE) % clientShards;
+	}
+
+	/**
+	 @return the endpoint's client shard assigned to the operation
+	 */
+	protected FileSystem getEndpoint(final Operation<? extends Item> operation) {
+		final String nodeAddr = operation.nodeAddr();
+		final int i = endpointIndex(nodeAddr);
+		if(i < 0) {
+			return getEndpoint(nodeAddr);
+		}
+		return endpointClients[i][clientShardIndex(operation)];
 	}
 
 	protected FileSystem getEndpoint(final String nodeAddr) {
+		final int i = endpointIndex(nodeAddr);
+		if(i < 0) {
+			// not configured endpoint, resolve it once
+			return extraEndpoints.computeIfAbsent(
+				nodeAddr,
+				addr -> {
+					try {
+						return resolveEndpoint(addr);
+					} catch(final URISyntaxException | IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			);
+		}
+		return endpoints[i];
+	}
+
+	protected final URI endpointUri(final String nodeAddr)
+	throws URISyntaxException {
+		if(nodeAddr.indexOf("://") > 0) {
+			// name space URI
+			return new URI(nodeAddr);
+		}
+		final String addr;
+		final int port;
+		int portSepPos = nodeAddr.lastIndexOf(':');
+		if(nodeAddr.equals(haNameService)) {
+			// logical URI, should not contain the port
+			addr = nodeAddr;
+			port = -1;
+		} else if(portSepPos > 0) {
+			addr = nodeAddr.substring(0, portSepPos);
+			port = Integer.parseInt(nodeAddr.substring(portSepPos + 1));
+		} else {
+			addr = nodeAddr;
+			port = nodePort;
+		}
+		final String uid = credential == null ? null : credential.getUid();
+		return new URI(uriSchema, uid, addr, port, "/", null, null);
+	}
+
+	protected FileSystem resolveEndpoint(final String nodeAddr)
+	throws URISyntaxException, IOException {
+		final URI endpointUri = endpointUri(nodeAddr);
+		return withClassLoader(() -> FileSystem.get(endpointUri, hadoopConfig));
+	}
+
+	/**
+	 @return the new file system instance which is not shared via the file systems cache, so it has its own
+	 HDFS client, lease renewer and namenode connection
+	 */
+	protected FileSystem resolveEndpointClient(final String nodeAddr)
+	throws URISyntaxException, IOException {
+		final URI endpointUri = endpointUri(nodeAddr);
+		return withClassLoader(() -> FileSystem.newInstance(endpointUri, hadoopConfig));
+	}
+
+	/**
+	 The rolling container file which the small items are appended to. One per destination directory and I/O
+	 thread, so the item's content is written without the locking.
+	 */
+	private static final class PackContainer {
+		private String name = null;
+		private FSDataOutputStream output = null;
+		private long size = 0;
+	}
+
+	/**
+	 Appends the whole item's content to the destination directory's current container file, rolls the
+	 container file over if the item doesn't fit it.
+	 @return the packed item name
+	 */
+	private String packItem(final DataOperation<? extends DataItem> fileOperation, final DataItem fileItem)
+	throws IOException {
+		final String itemName = fileItem.name();
+		final long itemSize = fileItem.size();
+		final Path itemPath = getFilePath(fileOperation.dstPath(), itemName);
+		final Path dirPath = itemPath.getParent() == null ? new Path("/") : itemPath.getParent();
+		final PackContainer container = packContainers.computeIfAbsent(
+			Thread.currentThread().getId() + ":" + dirPath, k -> new PackContainer()
+		);
+		if(container.output != null && container.size + itemSize > packContainerSize) {
+			final FSDataOutputStream output = container.output;
+			container.output = null;
+			output.close();
+		}
+		if(container.output == null) {
+			container.name = PackedItems.CONTAINER_NAME_PREFIX + UUID.randomUUID();
+			container.output = createFile(
+				getEndpoint(fileOperation), PackedItems.containerPath(itemPath, container.name),
+				packContainerSize, false
+			);
+			container.size = 0;
+			packContainerCount.increment();
+		}
+		final long offset = container.size;
 		try {
-			final String addr;
-			final int port;
-			int portSepPos = nodeAddr.lastIndexOf(':');
-			if(portSepPos > 0) {
-				addr = nodeAddr.substring(0, portSepPos);
-				port = Integer.parseInt(nodeAddr.substring(portSepPos + 1));
-			} else {
-				addr = nodeAddr;
-				port = nodePort;
-			}
-			final String uid = credential == null ? null : credential.getUid();
-			final URI endpointUri = new URI(uriSchema, uid, addr, port, "/", null, null);
-			// set the temporary thread's context classloader
-			Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
-			return FileSystem.get(endpointUri, hadoopConfig);
-		} catch(final URISyntaxException | IOException e) {
-			throw new RuntimeException(e);
+			// the item is written completely to not to interleave with the other items
+			long n = 0;
+			long m;
+			while(n < itemSize) {
+				m = writeContent(fileItem, container.output, itemSize - n);
+				if(m <= 0) {
+					break;
+				}
+				n += m;
+			}
+			if(n < itemSize) {
+				throw new EOFException(
+					"Written " + n + " bytes of the item " + itemName + " instead of " + itemSize
+				);
+			}
+			container.size += n;
+			// the item is reported done, so it should be visible for the readers whatever the flush policy
+			// is, the container is closed only when it's full or at the end of the step
+			if(! flush(container.output, offset, container.size, false)) {
+				final long t = System.nanoTime();
+				container.output.hflush();
+				flushNanos.add(System.nanoTime() - t);
+				flushCount.increment();
+			}
+		} catch(final IOException e) {
+			// the container is corrupted by the partially written item, don't append to it anymore
+			try {
+				container.output.close();
+			} catch(final IOException ee) {
+				LogUtil.exception(Level.DEBUG, ee, "Failed to close the container {}", container.name);
+			}
+			container.output = null;
+			throw e;
+		}
+		fileOperation.countBytesDone(itemSize);
+		packedItemCount.increment();
+		return PackedItems.packedName(itemName, container.name, offset);
+	}
+
+	private interface EndpointResolver {
+		FileSystem resolve()
+		throws URISyntaxException, IOException;
+	}
+
+	private FileSystem withClassLoader(final EndpointResolver resolver)
+	throws URISyntaxException, IOException {
+		final Thread currThread = Thread.currentThread();
+		final ClassLoader prevClassLoader = currThread.getContextClassLoader();
+		// set the temporary thread's context classloader
+		currThread.setContextClassLoader(getClass().getClassLoader());
+		try {
+			return resolver.resolve();
 		} finally {
 			// set the thread's context classloader back
-			Thread.currentThread().setContextClassLoader(ClassLoader.getSystemClassLoader());
+			currThread.setContextClassLoader(prevClassLoader);
 		}
 	}
 
@@ -131,14 +735,81 @@ extends NioStorageDriverBase<I, O> {
 	protected boolean prepare(final O operation) {
 		super.prepare(operation);
 		String endpointAddr = operation.nodeAddr();
+		boolean probe = false;
 		if(endpointAddr == null) {
-			endpointAddr = getNextEndpointAddr();
+			if(nameSpaceRouter != null) {
+				// the item's name space doesn't depend on the endpoint's load/health
+				endpointAddr = endpointAddrs[nameSpaceRouter.nameSpaceIndex(operation.item().name())];
+			} else {
+				final int probeIdx = endpointBalancer.probe();
+				if(probeIdx < 0) {
+					endpointAddr = getNextEndpointAddr();
+				} else {
+					endpointAddr = endpointAddrs[probeIdx];
+					probe = true;
+				}
+			}
 			operation.nodeAddr(endpointAddr);
 		}
+		// the path operations are not implemented, so they are not completed via the endpoint
+		if(operation instanceof DataOperation && endpointIndex(endpointAddr) >= 0) {
+			// the prepared operation may be dropped or prepared again, so it's accounted when invoked 1st time
+			if(probe) {
+				preparedEndpointOps.put(operation, Boolean.TRUE);
+			} else {
+				preparedEndpointOps.putIfAbsent(operation, Boolean.FALSE);
+			}
+		}
 		return true;
 	}
 
+	protected final void started(final O operation) {
+		final Boolean probe = preparedEndpointOps.remove(operation);
+		if(probe == null) {
+			return;
+		}
+		startedEndpointOps.put(operation, probe);
+		final int endpointIdx = endpointIndex(operation.nodeAddr());
+		endpointBalancer.started(endpointIdx);
+		if(clientShards > 1) {
+			final int shardIdx = endpointIdx * clientShards + clientShardIndex(operation);
+			final int shardOps = clientShardOps.incrementAndGet(shardIdx);
+			if(shardOps > clientShardPeakOps.get(shardIdx)) {
+				// the lost update is not a problem here
+				clientShardPeakOps.set(shardIdx, shardOps);
+			}
+		}
+	}
+
+	protected final void completed(final O operation) {
+		final Boolean probe = startedEndpointOps.remove(operation);
+		if(probe != null) {
+			final int endpointIdx = endpointIndex(operation.nodeAddr());
+			final Operation.Status status = operation.status();
+			// the other failures (e.g. the missing file) don't mean the endpoint failure
+			endpointBalancer.completed(
+				endpointIdx, operation.duration(), FAIL_IO.equals(status) || FAIL_UNKNOWN.equals(status), probe
+			);
+			if(clientShards > 1) {
+				final int shardIdx = endpointIdx * clientShards + clientShardIndex(operation);
+				if(clientShardOps.decrementAndGet(shardIdx) < 0) {
+					clientShardOps.set(shardIdx, 0);
+				}
+			}
+		}
+	}
+
 	protected static Path getFilePath(final String basePath, final String fileName) {
+		final String nameSpace = NameSpaceRouter.nameSpaceOf(fileName);
+		if(nameSpace != null) {
+			// the item name is qualified with the name space URI
+			final String filePath = fileName.substring(nameSpace.length());
+			if(basePath == null || basePath.isEmpty() || filePath.startsWith(basePath)) {
+				return new Path(filePath);
+			} else {
+				return new Path(basePath, new Path(filePath).getName());
+			}
+		}
 		if(basePath == null || basePath.isEmpty() || fileName.startsWith(basePath)) {
 			return new Path(fileName);
 		} else {
@@ -146,6 +817,190 @@ extends NioStorageDriverBase<I, O> {
 		}
 	}
 
+	/**
+	 The heap buffer counterpart of the {@link DirectMemUtil#getThreadLocalReusableBuff(long)}: the buffer
+	 grows by the powers of 2 up to the reusable buffer size max only if the larger size is requested
+	 @return the cleared thread local heap buffer which capacity is not less than the given size (limited by
+	 the reusable buffer size max)
+	 */
+	protected static ByteBuffer ioBuff(final long size) {
+		final int minCapacity = size < BUFF_SIZE_MIN ?
+			BUFF_SIZE_MIN : (size > REUSABLE_BUFF_SIZE_MAX ? REUSABLE_BUFF_SIZE_MAX : (int) size);
+		ByteBuffer buff = IO_BUFF.get();
+		if(buff == null || buff.capacity() < minCapacity) {
+			buff = ByteBuffer.allocate(
+				Math.min(REUSABLE_BUFF_SIZE_MAX, Integer.highestOneBit(minCapacity - 1) << 1)
+			);
+			IO_BUFF.set(buff);
+		}
+		buff.clear();
+		return buff;
+	}
+
+	/**
+	 Positioned read which doesn't change the input stream position, so the DFS client may hedge it
+	 @return the heap buffer containing the bytes read or null if the end of the file is reached
+	 */
+	protected static ByteBuffer pread(final FSDataInputStream inputStream, final long pos, final long size)
+	throws IOException {
+		final ByteBuffer buff = ioBuff(size);
+		final int n = inputStream.read(
+			pos, buff.array(), 0, size > buff.capacity() ? buff.capacity() : (int) size
+		);
+		if(n < 0) {
+			return null;
+		}
+		buff.position(0).limit(n);
+		return buff;
+	}
+
+	/**
+	 Reads from the current position of the input stream into the thread local direct buffer
+	 @return the flipped buffer containing the bytes read or null if the end of the file is reached
+	 */
+	protected static ByteBuffer read(final FSDataInputStream inputStream, final long size)
+	throws IOException {
+		final ByteBuffer buff = DirectMemUtil.getThreadLocalReusableBuff(size);
+		if(inputStream.read(buff) < 0) {
+			return null;
+		}
+		buff.flip();
+		return buff;
+	}
+
+	/**
+	 Reads the bytes at the given file position. The positioned read is used only if the DFS client may hedge
+	 it or if the input stream is shared with the other operations, otherwise the stream is seeked and read
+	 into the thread local direct buffer.
+	 @return the buffer containing the bytes read or null if the end of the file is reached
+	 */
+	protected final ByteBuffer readAt(
+		final DataOperation<? extends DataItem> operation, final FSDataInputStream inputStream, final long pos,
+		final long size
+	) throws IOException {
+		if(hedgedReadThreads > 0 || (sharedInputStreams != null && sharedInputStreams.acquired(operation))) {
+			return pread(inputStream, pos, size);
+		}
+		inputStream.seek(pos);
+		return read(inputStream, size);
+	}
+
+	/**
+	 Writes the next chunk of the item's content from its current position to the output stream through the
+	 output stream wrapper channel
+	 @param size the max count of the bytes to write, limited by the reusable buffer size max
+	 @return the count of the bytes written, may be less than the given size
+	 */
+	protected static long writeContent(
+		final DataItem fileItem, final FSDataOutputStream outputStream, final long size
+	) throws IOException {
+		final long chunkSize = size > REUSABLE_BUFF_SIZE_MAX ? REUSABLE_BUFF_SIZE_MAX : size;
+		final WritableByteChannel outputChan = OutputStreamWrapperChannel
+			.getThreadLocalInstance(outputStream, chunkSize);
+		return fileItem.writeToSocketChannel(outputChan, chunkSize);
+	}
+
+	/**
+	 Flushes the output stream according to the configured flush policy
+	 @param countBytesBefore the count of the bytes written before the current chunk
+	 @param countBytesDone the count of the bytes written including the current chunk
+	 @param lastChunk true if the current chunk is the last one before the output stream is closed
+	 @return true if the output stream is flushed, false otherwise
+	 */
+	protected final boolean flush(
+		final FSDataOutputStream outputStream, final long countBytesBefore, final long countBytesDone,
+		final boolean lastChunk
+	) throws IOException {
+		final boolean intervalPassed = flushInterval <= 0
+			|| countBytesBefore / flushInterval != countBytesDone / flushInterval;
+		final long t;
+		switch(flushPolicy) {
+			case PER_CHUNK:
+				t = System.nanoTime();
+				outputStream.hflush();
+				break;
+			case HFLUSH:
+				// the last chunk is flushed by the output stream closing
+				if(lastChunk || ! intervalPassed) {
+					return false;
+				}
+				t = System.nanoTime();
+				outputStream.hflush();
+				break;
+			case HSYNC:
+				if(! lastChunk && ! intervalPassed) {
+					return false;
+				}
+				t = System.nanoTime();
+				if(flushUpdateLength && outputStream instanceof HdfsDataOutputStream) {
+					((HdfsDataOutputStream) outputStream).hsync(
+						EnumSet.of(HdfsDataOutputStream.SyncFlag.UPDATE_LENGTH)
+					);
+				} else {
+					outputStream.hsync();
+				}
+				break;
+			default:
+				return false;
+		}
+		flushNanos.add(System.nanoTime() - t);
+		flushCount.increment();
+		return true;
+	}
+
+	protected FSDataOutputStream createFile(
+		final FileSystem endpoint, final Path filePath, final long fileSize, final boolean overwrite
+	) throws IOException {
+		return createFile(endpoint, filePath, fileSize, blockLayoutRules.blockSize(fileSize), overwrite);
+	}
+
+	/**
+	 @param fileSize the file size to select the replication factor by
+	 */
+	protected FSDataOutputStream createFile(
+		final FileSystem endpoint, final Path filePath, final long fileSize, final long blockSize,
+		final boolean overwrite
+	) throws IOException {
+		if(storagePolicy != null) {
+			final Path dirPath = filePath.getParent();
+			if(dirPath != null && ! storagePolicyDirs.contains(dirPath)) {
+				endpoint.mkdirs(dirPath, defaultFsPerm);
+				endpoint.setStoragePolicy(dirPath, storagePolicy);
+				storagePolicyDirs.add(dirPath);
+			}
+		}
+		if(ecPolicy != null && endpoint instanceof DistributedFileSystem) {
+			final DistributedFileSystem dfs = (DistributedFileSystem) endpoint;
+			final FSDataOutputStream outputStream;
+			if(ecPolicyOnDir) {
+				final Path dirPath = filePath.getParent();
+				if(dirPath != null && ! ecPolicyDirs.contains(dirPath)) {
+					dfs.mkdirs(dirPath, defaultFsPerm);
+					dfs.setErasureCodingPolicy(dirPath, ecPolicy);
+					ecPolicyDirs.add(dirPath);
+				}
+				outputStream = dfs
+					.createFile(filePath).permission(defaultFsPerm).overwrite(overwrite)
+					.bufferSize(outBuffSize).blockSize(blockSize).recursive().build();
+			} else {
+				outputStream = dfs
+					.createFile(filePath).ecPolicyName(ecPolicy).permission(defaultFsPerm)
+					.overwrite(overwrite).bufferSize(outBuffSize).blockSize(blockSize).recursive()
+					.build();
+			}
+			ecFileCount.increment();
+			return outputStream;
+		}
+		final short replication = blockLayoutRules.replication(
+			fileSize, endpoint.getDefaultReplication(filePath)
+		);
+		final FSDataOutputStream outputStream = endpoint.create(
+			filePath, defaultFsPerm, overwrite, outBuffSize, replication, blockSize, null
+		);
+		blockLayoutRules.applied(blockSize, replication);
+		return outputStream;
+	}
+
 	protected FSDataOutputStream getCreateFileStream(
 		final DataOperation<? extends DataItem> createFileTask
 	) {
@@ -153,12 +1008,13 @@ extends NioStorageDriverBase<I, O> {
 		final DataItem fileItem = createFileTask.item();
 		final String fileName = fileItem.name();
 		final Path filePath = getFilePath(dstPath, fileName);
-		final FileSystem endpoint = getEndpoint(createFileTask.nodeAddr());
+		final FileSystem endpoint = getEndpoint(createFileTask);
+		if(nameSpaceRouter != null) {
+			// record the name space to route the subsequent operations on the item directly
+			fileItem.name(endpoint.makeQualified(filePath).toString());
+		}
 		try {
-			return endpoint.create(
-				filePath, defaultFsPerm, false, outBuffSize,
-				endpoint.getDefaultReplication(filePath), fileItem.size(), null
-			);
+			return createFile(endpoint, filePath, fileItem.size(), false);
 		} catch(final IOException e) {
 			createFileTask.status(FAIL_IO);
 			throw new RuntimeException(e);
@@ -174,16 +1030,42 @@ extends NioStorageDriverBase<I, O> {
 		}
 		final DataItem fileItem = readFileTask.item();
 		final String fileName = fileItem.name();
-		final Path filePath = getFilePath(srcPath, fileName);
-		final FileSystem endpoint = getEndpoint(readFileTask.nodeAddr());
+		final FileSystem endpoint = getEndpoint(readFileTask);
 		try {
-			return endpoint.open(filePath, inBuffSize);
+			final String containerName = PackedItems.containerName(fileName);
+			if(containerName != null) {
+				final Path itemPath = getFilePath(srcPath, PackedItems.itemName(fileName));
+				return new FSDataInputStream(
+					new PackedFileInputStream(
+						endpoint.open(PackedItems.containerPath(itemPath, containerName), inBuffSize),
+						PackedItems.offset(fileName), fileItem.size()
+					)
+				);
+			}
+			return endpoint.open(getFilePath(srcPath, fileName), inBuffSize);
 		} catch(final IOException e) {
 			readFileTask.status(FAIL_IO);
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 @return the input stream shared with the other operations reading the same file
+	 */
+	protected FSDataInputStream getSharedReadFileStream(
+		final DataOperation<? extends DataItem> readFileTask
+	) {
+		final String srcPath = readFileTask.srcPath();
+		if(srcPath == null || srcPath.isEmpty()) {
+			return null;
+		}
+		// the same path in the different name spaces is the different file
+		final Path filePath = getEndpoint(readFileTask).makeQualified(
+			getFilePath(srcPath, readFileTask.item().name())
+		);
+		return sharedInputStreams.acquire(readFileTask, filePath, () -> getReadFileStream(readFileTask));
+	}
+
 	protected FSDataOutputStream getUpdateFileStream(
 		final DataOperation<? extends DataItem> updateFileTask
 	) {
@@ -191,12 +1073,10 @@ extends NioStorageDriverBase<I, O> {
 		final DataItem fileItem = updateFileTask.item();
 		final String fileName = fileItem.name();
 		final Path filePath = getFilePath(dstPath, fileName);
-		final FileSystem endpoint = getEndpoint(updateFileTask.nodeAddr());
+		final FileSystem endpoint = getEndpoint(updateFileTask);
+		invalidate(endpoint, filePath);
 		try {
-			return endpoint.create(
-				filePath, defaultFsPerm, true, outBuffSize,
-				endpoint.getDefaultReplication(filePath), fileItem.size(), null
-			);
+			return createFile(endpoint, filePath, fileItem.size(), true);
 		} catch(final IOException e) {
 			updateFileTask.status(FAIL_IO);
 			throw new RuntimeException(e);
@@ -210,7 +1090,8 @@ extends NioStorageDriverBase<I, O> {
 		final DataItem fileItem = appendFileTask.item();
 		final String fileName = fileItem.name();
 		final Path filePath = getFilePath(dstPath, fileName);
-		final FileSystem endpoint = getEndpoint(appendFileTask.nodeAddr());
+		final FileSystem endpoint = getEndpoint(appendFileTask);
+		invalidate(endpoint, filePath);
 		try {
 			return endpoint.append(filePath, outBuffSize);
 		} catch(final IOException e) {
@@ -230,7 +1111,58 @@ extends NioStorageDriverBase<I, O> {
 		}
 	}
 
+	/**
+	 Finishes the operation which has written all the data. If the asynchronous close is enabled the
+	 operation remains active until its output stream is closed by the closer.
+	 */
+	private void finishOutputOperation(final DataOperation<? extends DataItem> fileOperation)
+	throws IOException {
+		if(asyncCloser == null) {
+			finishOperation((O) fileOperation);
+		} else {
+			final FSDataInputStream input = fileInputStreams.remove(fileOperation);
+			if(input != null) {
+				closeInput(input);
+			}
+			asyncCloser.close(fileOperation, fileOutputStreams.remove(fileOperation));
+		}
+	}
+
+	/**
+	 @return true if the operation is waiting for its output stream to be closed asynchronously
+	 */
+	private boolean checkPendingClose(final DataOperation<? extends DataItem> fileOperation) {
+		final Future<?> closeFuture = asyncCloser.pendingClose(fileOperation);
+		if(closeFuture == null) {
+			return false;
+		}
+		if(! closeFuture.isDone()) {
+			return true;
+		}
+		asyncCloser.remove(fileOperation);
+		finishOperation((O) fileOperation);
+		try {
+			closeFuture.get();
+		} catch(final ExecutionException e) {
+			LogUtil.exception(
+				Level.DEBUG, e.getCause(), "Failed to close the file: {}", fileOperation.item().name()
+			);
+			fileOperation.status(FAIL_IO);
+		} catch(final CancellationException e) {
+			Loggers.ERR.warn("Abandoned the close of the file: {}", fileOperation.item().name());
+			fileOperation.status(FAIL_IO);
+		} catch(final InterruptedException e) {
+			throwUnchecked(e);
+		}
+		completed((O) fileOperation);
+		return true;
+	}
+
 	private void invokeFileNio(final DataOperation<? extends DataItem> fileOperation) {
+		started((O) fileOperation);
+		if(asyncCloser != null && checkPendingClose(fileOperation)) {
+			return;
+		}
 		final OpType opType = fileOperation.type();
 		final DataItem fileItem = fileOperation.item();
 		FSDataInputStream input = null;
@@ -243,7 +1175,22 @@ extends NioStorageDriverBase<I, O> {
 				case CREATE:
 					final List<? extends DataItem> srcItems = fileOperation.srcItemsToConcat();
 					if(srcItems != null) {
-						throw new AssertionError("Files concatenation support is not implemented");
+						if(invokeFileConcat(fileOperation, fileItem, srcItems)) {
+							finishOperation((O) fileOperation);
+						}
+					} else if(
+						packEnabled && fileItem.size() <= packItemSizeLimit
+							&& (fileOperation.srcPath() == null || fileOperation.srcPath().isEmpty())
+					) {
+						fileItem.name(packItem(fileOperation, fileItem));
+						finishOperation((O) fileOperation);
+					} else if(
+						multipartParts > 1 && fileItem.size() >= multipartThreshold
+							&& (fileOperation.srcPath() == null || fileOperation.srcPath().isEmpty())
+					) {
+						if(invokeFileMultipartCreate(fileOperation, fileItem)) {
+							finishOperation((O) fileOperation);
+						}
 					} else {
 						input = fileInputStreams.computeIfAbsent(
 							fileOperation, this::getReadFileStream
@@ -253,27 +1200,55 @@ extends NioStorageDriverBase<I, O> {
 						);
 						if(input != null) {
 							if(invokeFileCopy(fileOperation, fileItem, input, output)) {
-								finishOperation((O) fileOperation);
+								finishOutputOperation(fileOperation);
 							}
 						} else {
 							if(invokeFileCreate(fileOperation, fileItem, output)) {
-								finishOperation((O) fileOperation);
+								finishOutputOperation(fileOperation);
 							}
 						}
 					}
 					break;
 				case READ:
-					input = fileInputStreams.computeIfAbsent(fileOperation, this::getReadFileStream);
 					final List<Range> fixedRangesToRead = fileOperation.fixedRanges();
+					if(
+						verifyFlag && compositeCrcVerifier != null && ! fileOperation.hasMarkedRanges()
+							&& (fixedRangesToRead == null || fixedRangesToRead.isEmpty())
+							&& PackedItems.containerName(fileItem.name()) == null
+					) {
+						if(invokeFileChecksumVerify(fileOperation, fileItem)) {
+							// the content is verified by the datanodes, count it as the read one
+							fileOperation.countBytesDone(fileItem.size());
+							finishOperation((O) fileOperation);
+							if(! compositeCrcVerifier.finish(fileOperation)) {
+								Loggers.MSG.debug("{}: composite CRC mismatch", fileItem.name());
+								fileOperation.status(RESP_FAIL_CORRUPT);
+							}
+						}
+						break;
+					}
+					if(
+						sharedInputStreams != null && (
+							readCacheEnabled || fileOperation.hasMarkedRanges()
+								|| (fixedRangesToRead != null && ! fixedRangesToRead.isEmpty())
+						)
+					) {
+						// the shared streams are read using the positioned reads only
+						input = fileInputStreams.computeIfAbsent(fileOperation, this::getSharedReadFileStream);
+					} else {
+						input = fileInputStreams.computeIfAbsent(fileOperation, this::getReadFileStream);
+					}
 					if(verifyFlag) {
 						try {
 							if(fixedRangesToRead == null || fixedRangesToRead.isEmpty()) {
 								if(fileOperation.hasMarkedRanges()) {
 									if(
-										invokeFileReadAndVerifyRandomRanges(
-											fileOperation, fileItem, input,
-											fileOperation.markedRangesMaskPair()
-										)
+										readCoalesce ?
+											invokeFileReadCoalescedRanges(fileOperation, fileItem, input) :
+											invokeFileReadAndVerifyRandomRanges(
+												fileOperation, fileItem, input,
+												fileOperation.markedRangesMaskPair()
+											)
 									) {
 										finishOperation((O) fileOperation);
 									}
@@ -284,9 +1259,11 @@ extends NioStorageDriverBase<I, O> {
 								}
 							} else {
 								if(
-									invokeFileReadAndVerifyFixedRanges(
-										fileOperation, fileItem, input, fixedRangesToRead
-									)
+									readCoalesce ?
+										invokeFileReadCoalescedRanges(fileOperation, fileItem, input) :
+										invokeFileReadAndVerifyFixedRanges(
+											fileOperation, fileItem, input, fixedRangesToRead
+										)
 								) {
 									finishOperation((O) fileOperation);
 								}
@@ -317,10 +1294,12 @@ extends NioStorageDriverBase<I, O> {
 						if(fixedRangesToRead == null || fixedRangesToRead.isEmpty()) {
 							if(fileOperation.hasMarkedRanges()) {
 								if(
-									invokeFileReadRandomRanges(
-										fileOperation, fileItem, input,
-										fileOperation.markedRangesMaskPair()
-									)
+									readCoalesce ?
+										invokeFileReadCoalescedRanges(fileOperation, fileItem, input) :
+										invokeFileReadRandomRanges(
+											fileOperation, fileItem, input,
+											fileOperation.markedRangesMaskPair()
+										)
 								) {
 									fileOperation.countBytesDone(fileOperation.markedRangesSize());
 									finishOperation((O) fileOperation);
@@ -332,9 +1311,11 @@ extends NioStorageDriverBase<I, O> {
 							}
 						} else {
 							if(
-								invokeFileReadFixedRanges(
-									fileOperation, fileItem, input, fixedRangesToRead
-								)
+								readCoalesce ?
+									invokeFileReadCoalescedRanges(fileOperation, fileItem, input) :
+									invokeFileReadFixedRanges(
+										fileOperation, fileItem, input, fixedRangesToRead
+									)
 							) {
 								finishOperation((O) fileOperation);
 							}
@@ -342,29 +1323,65 @@ extends NioStorageDriverBase<I, O> {
 					}
 					break;
 				case UPDATE:
+					if(PackedItems.containerName(fileItem.name()) != null) {
+						Loggers.ERR.debug("The packed item {} can not be updated", fileItem.name());
+						finishOperation((O) fileOperation);
+						fileOperation.status(RESP_FAIL_CLIENT);
+						break;
+					}
+					if(storagePolicySatisfier != null) {
+						try {
+							if(
+								storagePolicySatisfier.satisfy(
+									fileOperation, getEndpoint(fileOperation),
+									getFilePath(fileOperation.dstPath(), fileItem.name())
+								)
+							) {
+								finishOperation((O) fileOperation);
+							}
+						} catch(final TimeoutException e) {
+							LogUtil.exception(Level.DEBUG, e, "Storage policy update timeout");
+							finishOperation((O) fileOperation);
+							fileOperation.status(FAIL_TIMEOUT);
+						}
+						break;
+					}
 					final List<Range> fixedRangesToUpdate = fileOperation.fixedRanges();
 					if(fixedRangesToUpdate == null || fixedRangesToUpdate.isEmpty()) {
 						if(fileOperation.hasMarkedRanges()) {
-							throw new AssertionError("Random byte ranges update isn't implemented");
+							if(invokeFileRangesUpdate(fileOperation, fileItem)) {
+								finishOperation((O) fileOperation);
+							}
 						} else {
 							// overwrite the file
 							output = fileOutputStreams.computeIfAbsent(
 								fileOperation, this::getUpdateFileStream
 							);
 							if(invokeFileCreate(fileOperation, fileItem, output)) {
-								finishOperation((O) fileOperation);
+								finishOutputOperation(fileOperation);
 							}
 						}
 					} else {
 						if(fixedRangesToUpdate.size() == 1) {
 							final Range range = fixedRangesToUpdate.get(0);
-							if(range.getBeg() == 0 && range.getEnd() == fileItem.size() - 1) {
+							if(
+								updateTailCut && range.getSize() <= 0
+									&& (range.getBeg() == - 1 || range.getEnd() == - 1)
+							) {
+								// cut the last "rangeEnd" bytes or all the bytes starting from "rangeBeg"
+								final long fileSize = fileItem.size();
+								final long newSize = range.getBeg() == - 1 ?
+									Math.max(0, fileSize - range.getEnd()) : Math.min(range.getBeg(), fileSize);
+								if(invokeFileTruncate(fileOperation, fileItem, newSize)) {
+									finishOperation((O) fileOperation);
+								}
+							} else if(range.getBeg() == 0 && range.getEnd() == fileItem.size() - 1) {
 								// overwrite the file
 								output = fileOutputStreams.computeIfAbsent(
 									fileOperation, this::getUpdateFileStream
 								);
 								if(invokeFileCreate(fileOperation, fileItem, output)) {
-									finishOperation((O) fileOperation);
+									finishOutputOperation(fileOperation);
 								}
 							} else if(range.getSize() > 0) {
 								// append
@@ -372,21 +1389,30 @@ extends NioStorageDriverBase<I, O> {
 									fileOperation, this::getAppendFileStream
 								);
 								if(invokeFileAppend(fileOperation, fileItem, output, range)) {
-									finishOperation((O) fileOperation);
+									finishOutputOperation(fileOperation);
 								}
-							} else {
-								throw new AssertionError(
-									"Custom fixed byte ranges update isn't implemented"
-								);
+							} else if(invokeFileRangesUpdate(fileOperation, fileItem)) {
+								finishOperation((O) fileOperation);
 							}
-						} else {
-							throw new AssertionError(
-								"Multiple fixed byte ranges update isn't implemented"
+						} else if(hasAppendRange(fixedRangesToUpdate)) {
+							Loggers.ERR.debug(
+								"Appending together with the other byte ranges update isn't supported: {}",
+								fileItem.name()
 							);
+							finishOperation((O) fileOperation);
+							fileOperation.status(RESP_FAIL_CLIENT);
+						} else if(invokeFileRangesUpdate(fileOperation, fileItem)) {
+							finishOperation((O) fileOperation);
 						}
 					}
 					break;
 				case DELETE:
+					if(PackedItems.containerName(fileItem.name()) != null) {
+						Loggers.ERR.debug("The packed item {} can not be deleted", fileItem.name());
+						finishOperation((O) fileOperation);
+						fileOperation.status(RESP_FAIL_CLIENT);
+						break;
+					}
 					if(invokeFileDelete(fileOperation)) {
 						finishOperation((O) fileOperation);
 					}
@@ -436,12 +1462,34 @@ extends NioStorageDriverBase<I, O> {
 			}
 		} finally {
 			if(! ACTIVE.equals(fileOperation.status())) {
+				completed((O) fileOperation);
+				if(storagePolicySatisfier != null) {
+					storagePolicySatisfier.discard(fileOperation);
+				}
+				truncateRecovery.discard(fileOperation);
+				final RangeUpdate rangeUpdate = rangeUpdates.remove(fileOperation);
+				if(rangeUpdate != null) {
+					discardRangeUpdate(getEndpoint(fileOperation), rangeUpdate);
+				}
+				copyStartTimes.remove(fileOperation);
+				if(copyPrefetcher != null) {
+					copyPrefetcher.release(fileOperation);
+				}
+				rangeReadPlans.remove(fileOperation);
+				if(compositeCrcVerifier != null) {
+					compositeCrcVerifier.discard(fileOperation);
+				}
+				if(verifyPipeline != null) {
+					verifyPipeline.release(fileOperation);
+				}
+				final MultipartCreate multipartCreate = multipartCreates.remove(fileOperation);
+				if(multipartCreate != null) {
+					discardMultipartCreate(getEndpoint(fileOperation), multipartCreate);
+				}
 				if(input != null) {
 					fileInputStreams.remove(fileOperation);
-					try {
-						input.close();
-					} catch(final IOException e) {
-						Loggers.ERR.warn("Failed to close the source I/O channel");
+					if(sharedInputStreams == null || ! sharedInputStreams.release(fileOperation)) {
+						closeInput(input);
 					}
 				}
 				if(output != null) {
@@ -456,6 +1504,37 @@ extends NioStorageDriverBase<I, O> {
 		}
 	}
 
+	private static boolean hasAppendRange(final List<Range> fixedRanges) {
+		for(final Range fixedRange : fixedRanges) {
+			if(fixedRange.getSize() > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void closeInput(final FSDataInputStream input) {
+		stripedReadStats.update(input);
+		if(readLocalityStats != null) {
+			readLocalityStats.update(input);
+		}
+		try {
+			input.close();
+		} catch(final IOException e) {
+			Loggers.ERR.warn("Failed to close the source I/O channel");
+		}
+	}
+
+	/**
+	 Invalidates the cached state of the file which is changed or deleted
+	 @param endpoint the file's name space endpoint
+	 */
+	private void invalidate(final FileSystem endpoint, final Path filePath) {
+		if(sharedInputStreams != null) {
+			sharedInputStreams.invalidate(endpoint.makeQualified(filePath));
+		}
+	}
+
 	private void invokeDirectoryNio(final PathOperation<? extends PathItem> diroperation) {
 		throw new AssertionError("Not implemented yet");
 	}
@@ -484,15 +1563,106 @@ extends NioStorageDriverBase<I, O> {
 		long countBytesDone = fileOperation.countBytesDone();
 		final long remainingBytes = fileSize - countBytesDone;
 		if(remainingBytes > 0) {
-			final WritableByteChannel outputChan = OutputStreamWrapperChannel
-				.getThreadLocalInstance(outputStream, remainingBytes);
-			countBytesDone += fileItem.writeToSocketChannel(outputChan, remainingBytes);
-			outputStream.hflush();
+			final long countBytesBefore = countBytesDone;
+			countBytesDone += writeContent(fileItem, outputStream, remainingBytes);
+			flush(outputStream, countBytesBefore, countBytesDone, countBytesDone >= fileSize);
 			fileOperation.countBytesDone(countBytesDone);
 		}
 		return remainingBytes <= 0;
 	}
 
+	/**
+	 Writes the next chunk of each unfinished part, so the write pipelines of the parts work concurrently.
+	 When all the parts are written the part files are closed and concatenated into the 1st part file which
+	 is the destination file.
+	 */
+	protected boolean invokeFileMultipartCreate(
+		final DataOperation<? extends DataItem> fileOperation, final DataItem fileItem
+	) throws IOException {
+		final FileSystem endpoint = getEndpoint(fileOperation);
+		MultipartCreate multipartCreate = multipartCreates.get(fileOperation);
+		if(multipartCreate == null) {
+			final Path filePath = getFilePath(fileOperation.dstPath(), fileItem.name());
+			if(nameSpaceRouter != null) {
+				fileItem.name(endpoint.makeQualified(filePath).toString());
+			}
+			final long fileSize = fileItem.size();
+			final long fileBlockSize = blockLayoutRules.blockSize(fileSize);
+			// the parts are aligned to the blocks, so the block size should be less than the file size
+			final long blockSize = fileBlockSize < fileSize ?
+				fileBlockSize : endpoint.getDefaultBlockSize(filePath);
+			multipartCreate = new MultipartCreate(fileItem, filePath, multipartParts, blockSize);
+			multipartCreates.put(fileOperation, multipartCreate);
+			// the same block size is used for all the parts as required by the concatenation
+			for(int i = 0; i < multipartCreate.partCount(); i ++) {
+				multipartCreate.outputs[i] = createFile(
+					endpoint, multipartCreate.partPath(i), fileSize, blockSize, false
+				);
+			}
+		}
+		final int partCount = multipartCreate.partCount();
+		final long chunkSize = REUSABLE_BUFF_SIZE_MAX;
+		long countBytesDone = fileOperation.countBytesDone();
+		boolean allPartsDone = true;
+		long partRemainingSize;
+		long countBytesBefore;
+		for(int i = 0; i < partCount; i ++) {
+			partRemainingSize = multipartCreate.partRemainingSize(i);
+			if(partRemainingSize > 0) {
+				countBytesBefore = multipartCreate.partBytesDone[i];
+				multipartCreate.partBytesDone[i] += writeContent(
+					multipartCreate.partContent(i), multipartCreate.outputs[i],
+					Math.min(chunkSize, partRemainingSize)
+				);
+				countBytesDone += multipartCreate.partBytesDone[i] - countBytesBefore;
+				partRemainingSize = multipartCreate.partRemainingSize(i);
+				flush(
+					multipartCreate.outputs[i], countBytesBefore, multipartCreate.partBytesDone[i],
+					partRemainingSize <= 0
+				);
+				allPartsDone = allPartsDone && partRemainingSize <= 0;
+			}
+		}
+		fileOperation.countBytesDone(countBytesDone);
+		if(! allPartsDone) {
+			return false;
+		}
+		for(int i = 0; i < partCount; i ++) {
+			multipartCreate.outputs[i].close();
+			multipartCreate.outputs[i] = null;
+		}
+		final long t = System.nanoTime();
+		if(partCount > 1) {
+			endpoint.concat(multipartCreate.filePath(), multipartCreate.srcPartPaths());
+		}
+		multipartConcatNanos.add(System.nanoTime() - t);
+		multipartCreateCount.increment();
+		multipartPartCount.add(partCount);
+		multipartCreates.remove(fileOperation);
+		return true;
+	}
+
+	/**
+	 Closes the part files and removes them except the 1st one, so the partially created file remains as it
+	 would be in case of the sequential create failure
+	 */
+	private void discardMultipartCreate(final FileSystem endpoint, final MultipartCreate multipartCreate) {
+		for(int i = 0; i < multipartCreate.partCount(); i ++) {
+			try {
+				if(multipartCreate.outputs[i] != null) {
+					multipartCreate.outputs[i].close();
+				}
+				if(i > 0) {
+					endpoint.delete(multipartCreate.partPath(i), false);
+				}
+			} catch(final IOException e) {
+				LogUtil.exception(
+					Level.DEBUG, e, "Failed to discard the part file {}", multipartCreate.partPath(i)
+				);
+			}
+		}
+	}
+
 	protected boolean invokeFileCopy(
 		final DataOperation<? extends DataItem> fileOperation, final DataItem fileItem,
 		final FSDataInputStream inputStream, final FSDataOutputStream outputStream
@@ -507,70 +1677,162 @@ extends NioStorageDriverBase<I, O> {
 		}
 		final long remainingSize = fileSize - countBytesDone;
 		if(remainingSize > 0 && ACTIVE.equals(fileOperation.status())) {
-			final byte[] buff = new byte[
-				remainingSize > REUSABLE_BUFF_SIZE_MAX ?
-				REUSABLE_BUFF_SIZE_MAX : (int) remainingSize
-				];
-			final int n = inputStream.read(buff, 0, buff.length);
+			copyStartTimes.putIfAbsent(fileOperation, System.nanoTime());
+			final int n;
+			final byte[] buff;
+			if(copyPrefetcher != null) {
+				final ByteBuffer inBuff = copyPrefetcher.next(
+					fileOperation, inputStream, countBytesDone, fileSize
+				);
+				if(inBuff == null) {
+					return false;
+				}
+				n = inBuff.remaining();
+				buff = inBuff.array();
+			} else if(hedgedReadThreads > 0) {
+				final ByteBuffer inBuff = pread(inputStream, countBytesDone, remainingSize);
+				if(inBuff == null) {
+					throw new EOFException("Unexpected end of the source file: " + fileItem.name());
+				}
+				n = inBuff.remaining();
+				buff = inBuff.array();
+			} else {
+				buff = ioBuff(remainingSize).array();
+				n = inputStream.read(
+					buff, 0, remainingSize > buff.length ? buff.length : (int) remainingSize
+				);
+				if(n < 0) {
+					throw new EOFException("Unexpected end of the source file: " + fileItem.name());
+				}
+			}
 			outputStream.write(buff, 0, n);
-			outputStream.hflush();
+			flush(outputStream, countBytesDone, countBytesDone + n, countBytesDone + n >= fileSize);
 			countBytesDone += n;
 			fileOperation.countBytesDone(countBytesDone);
+			if(countBytesDone >= fileSize) {
+				final Long copyStartTime = copyStartTimes.remove(fileOperation);
+				if(copyStartTime != null) {
+					copyNanos.add(System.nanoTime() - copyStartTime);
+					copyBytes.add(fileSize);
+					copyCount.increment();
+				}
+				if(copyPrefetcher != null) {
+					copyPrefetcher.release(fileOperation);
+				}
+			}
 		}
 		return countBytesDone >= fileSize;
 	}
 
-	/*protected boolean invokeFileConcat(
+	/**
+	 Concatenates the source files into the destination file: the 1st source file is renamed to the
+	 destination file, then the remaining source files are appended to it by the namenode. The source files
+	 are removed by the concatenation and should be in the same directory as the destination file. The
+	 namenode rejects the source files which preferred block size is larger than the destination file's one,
+	 so the block sizes are checked before the renaming.
+	 */
+	protected boolean invokeFileConcat(
 		final DataOperation<? extends DataItem> fileOperation, final DataItem fileItem,
-		final List<? extends DataItem> srcItems, final FileSystem endpoint,
-		final FsPermission fsPerm
+		final List<? extends DataItem> srcItems
 	) throws IOException {
-
 		final String dstPath = fileOperation.dstPath();
+		final String srcPath = fileOperation.srcPath();
+		final String srcDirPath = srcPath == null || srcPath.isEmpty() ? dstPath : srcPath;
+		final FileSystem endpoint = getEndpoint(fileOperation);
+		final Path dstFilePath = getFilePath(dstPath, fileItem.name());
 		final int srcItemsCount = srcItems.size();
-		final Path[] srcPaths = new Path[srcItems.size()];
-		final String fileName = fileItem.name();
-		final Path dstFilePath = driver.getFilePath(dstPath, fileName);
-		DataItem srcItem;
-		long dstItemSize = 0;
-
-		for(int i = 0; i < srcItemsCount; i ++) {
-			srcItem = srcItems.get(i);
-			srcPaths[i] = driver.getFilePath(dstPath, srcItem.name());
-			dstItemSize += srcItem.size();
-		}
-		endpoint
-			.create(
-				dstFilePath, fsPerm, false, 0, endpoint.getDefaultReplication(dstFilePath),
-				dstItemSize, null
-			)
-			.close();
-		endpoint.concat(dstFilePath, srcPaths);
-
+		if(srcItemsCount == 0) {
+			throw new IllegalArgumentException("No source files to concatenate");
+		}
+		final Path firstSrcFilePath = getFilePath(srcDirPath, srcItems.get(0).name());
+		final Path[] srcFilePaths = new Path[srcItemsCount - 1];
+		long dstFileSize = srcItems.get(0).size();
+		for(int i = 1; i < srcItemsCount; i ++) {
+			final DataItem srcItem = srcItems.get(i);
+			srcFilePaths[i - 1] = getFilePath(srcDirPath, srcItem.name());
+			dstFileSize += srcItem.size();
+		}
+		final long t = System.nanoTime();
+		if(srcFilePaths.length > 0) {
+			final long dstBlockSize = endpoint.getFileStatus(firstSrcFilePath).getBlockSize();
+			long srcBlockSize;
+			for(final Path srcFilePath : srcFilePaths) {
+				srcBlockSize = endpoint.getFileStatus(srcFilePath).getBlockSize();
+				if(srcBlockSize > dstBlockSize) {
+					Loggers.ERR.debug(
+						"{}: the source file {} block size {} is larger than the 1st source file's one: {}",
+						dstFilePath, srcFilePath, srcBlockSize, dstBlockSize
+					);
+					finishOperation((O) fileOperation);
+					fileOperation.status(RESP_FAIL_CLIENT);
+					return false;
+				}
+			}
+		}
+		if(! endpoint.rename(firstSrcFilePath, dstFilePath)) {
+			throw new IOException("Failed to rename " + firstSrcFilePath + " to " + dstFilePath);
+		}
+		if(srcFilePaths.length > 0) {
+			try {
+				endpoint.concat(dstFilePath, srcFilePaths);
+			} catch(final IOException | RuntimeException e) {
+				// return the 1st source file back, so the source files remain as they were
+				try {
+					if(! endpoint.rename(dstFilePath, firstSrcFilePath)) {
+						Loggers.ERR.warn("Failed to rename {} back to {}", dstFilePath, firstSrcFilePath);
+					}
+				} catch(final IOException ee) {
+					LogUtil.exception(
+						Level.WARN, ee, "Failed to rename {} back to {}", dstFilePath, firstSrcFilePath
+					);
+				}
+				throw e;
+			}
+		}
+		concatNanos.add(System.nanoTime() - t);
+		concatCount.increment();
+		concatSrcCount.add(srcItemsCount);
+		concatBytes.add(dstFileSize);
+		if(Loggers.MSG.isTraceEnabled()) {
+			Loggers.MSG.trace(
+				"{}: concatenated {} source files, {}", dstFilePath, srcItemsCount,
+				SizeInBytes.formatFixedSize(dstFileSize)
+			);
+		}
+		invalidate(endpoint, dstFilePath);
+		invalidate(endpoint, firstSrcFilePath);
+		for(final Path srcFilePath : srcFilePaths) {
+			invalidate(endpoint, srcFilePath);
+		}
+		fileItem.size(dstFileSize);
+		fileOperation.countBytesDone(dstFileSize);
 		return true;
-	}*/
+	}
 
 	protected boolean invokeFileReadAndVerify(
 		final DataOperation<? extends DataItem> operation, final DataItem fileItem,
 		final FSDataInputStream inputStream
 	)
 	throws DataSizeException, DataCorruptionException, IOException {
+		if(verifyPipeline != null) {
+			return invokeFileReadAndVerifyPipelined(operation, fileItem, inputStream);
+		}
 		long countBytesDone = operation.countBytesDone();
 		final long contentSize = fileItem.size();
+		final boolean positionedRead = sharedInputStreams != null && sharedInputStreams.acquired(operation);
 		if(countBytesDone < contentSize) {
 			if(fileItem.isUpdated()) {
 				final DataItem currRange = operation.currRange();
 				final int nextRangeIdx = operation.currRangeIdx() + 1;
 				final long nextRangeOffset = rangeOffset(nextRangeIdx);
 				if(currRange != null) {
-					final ByteBuffer inBuff = DirectMemUtil.getThreadLocalReusableBuff(
-						nextRangeOffset - countBytesDone
-					);
-					final int n = inputStream.read(inBuff);
-					if(n < 0) {
+					final ByteBuffer inBuff = positionedRead ?
+						pread(inputStream, countBytesDone, nextRangeOffset - countBytesDone) :
+						read(inputStream, nextRangeOffset - countBytesDone);
+					if(inBuff == null) {
 						throw new DataSizeException(contentSize, countBytesDone);
 					} else {
-						inBuff.flip();
+						final int n = inBuff.remaining();
 						currRange.verify(inBuff);
 						currRange.position(currRange.position() + n);
 						countBytesDone += n;
@@ -582,14 +1844,13 @@ extends NioStorageDriverBase<I, O> {
 					throw new AssertionError("Null data range");
 				}
 			} else {
-				final ByteBuffer inBuff = DirectMemUtil.getThreadLocalReusableBuff(
-					contentSize - countBytesDone
-				);
-				final int n = inputStream.read(inBuff);
-				if(n < 0) {
+				final ByteBuffer inBuff = positionedRead ?
+					pread(inputStream, countBytesDone, contentSize - countBytesDone) :
+					read(inputStream, contentSize - countBytesDone);
+				if(inBuff == null) {
 					throw new DataSizeException(contentSize, countBytesDone);
 				} else {
-					inBuff.flip();
+					final int n = inBuff.remaining();
 					fileItem.verify(inBuff);
 					fileItem.position(fileItem.position() + n);
 					countBytesDone += n;
@@ -600,6 +1861,85 @@ extends NioStorageDriverBase<I, O> {
 		return countBytesDone >= contentSize;
 	}
 
+	/**
+	 Reads the next chunk while the previous one is being verified by the verification pipeline. The
+	 operation is done when all the content is read and the last chunk is verified.
+	 */
+	protected boolean invokeFileReadAndVerifyPipelined(
+		final DataOperation<? extends DataItem> operation, final DataItem fileItem,
+		final FSDataInputStream inputStream
+	)
+	throws DataSizeException, DataCorruptionException, IOException {
+		long countBytesDone = operation.countBytesDone();
+		final long contentSize = fileItem.size();
+		try {
+			if(countBytesDone >= contentSize) {
+				// done when the last chunk verification is done
+				return verifyPipeline.done(operation);
+			}
+			if(! verifyPipeline.ready(operation)) {
+				// the previous chunk is read but not submitted for the verification yet
+				return false;
+			}
+			final ByteBuffer inBuff = verifyPipeline.nextBuff(operation, contentSize - countBytesDone);
+			final DataItem content;
+			final long remainingSize;
+			int nextRangeIdx = -1;
+			if(fileItem.isUpdated()) {
+				content = operation.currRange();
+				if(content == null) {
+					throw new AssertionError("Null data range");
+				}
+				nextRangeIdx = operation.currRangeIdx() + 1;
+				remainingSize = rangeOffset(nextRangeIdx) - countBytesDone;
+			} else {
+				content = fileItem;
+				remainingSize = contentSize - countBytesDone;
+			}
+			final int len = remainingSize < inBuff.capacity() ? (int) remainingSize : inBuff.capacity();
+			final int n;
+			if(sharedInputStreams != null && sharedInputStreams.acquired(operation)) {
+				n = inputStream.read(countBytesDone, inBuff.array(), 0, len);
+			} else {
+				n = inputStream.read(inBuff.array(), 0, len);
+			}
+			if(n < 0) {
+				throw new DataSizeException(contentSize, countBytesDone);
+			}
+			inBuff.limit(n);
+			verifyPipeline.verify(operation, content, countBytesDone);
+			countBytesDone += n;
+			if(nextRangeIdx > 0 && countBytesDone == rangeOffset(nextRangeIdx)) {
+				operation.currRangeIdx(nextRangeIdx);
+			}
+			operation.countBytesDone(countBytesDone);
+			return countBytesDone >= contentSize && verifyPipeline.done(operation);
+		} catch(final DataCorruptionException e) {
+			// the offset is relative to the done bytes count as for the inline verification
+			throw new DataCorruptionException(
+				e.getOffset() - operation.countBytesDone(), e.expected, e.actual
+			);
+		}
+	}
+
+	/**
+	 Verifies the file content without reading it: the file checksum is calculated by the datanodes in the
+	 composite CRC mode and compared with the CRC of the expected content. The 1st invocation gets the file
+	 checksum, the subsequent ones calculate the expected content CRC chunk by chunk.
+	 @return true if the expected content CRC is calculated, so the verification may be finished
+	 */
+	protected boolean invokeFileChecksumVerify(
+		final DataOperation<? extends DataItem> operation, final DataItem fileItem
+	) throws IOException {
+		if(compositeCrcVerifier.started(operation)) {
+			return compositeCrcVerifier.calculate(operation);
+		}
+		final Path filePath = getFilePath(operation.srcPath(), fileItem.name());
+		final FileChecksum checksum = getEndpoint(operation).getFileChecksum(filePath);
+		compositeCrcVerifier.start(operation, fileItem, checksum);
+		return false;
+	}
+
 	protected boolean invokeFileReadAndVerifyRandomRanges(
 		final DataOperation<? extends DataItem> operation, final DataItem fileItem,
 		final FSDataInputStream inputStream, final BitSet maskRangesPair[]
@@ -634,15 +1974,11 @@ extends NioStorageDriverBase<I, O> {
 			}
 			final long currRangeSize = range2read.size();
 			final long currPos = rangeOffset(currRangeIdx) + countBytesDone;
-			inputStream.seek(currPos);
-			final ByteBuffer inBuff = DirectMemUtil.getThreadLocalReusableBuff(
-				currRangeSize - countBytesDone
-			);
-			final int n = inputStream.read(inBuff);
-			if(n < 0) {
+			final ByteBuffer inBuff = readAt(operation, inputStream, currPos, currRangeSize - countBytesDone);
+			if(inBuff == null) {
 				throw new DataSizeException(rangesSizeSum, countBytesDone);
 			} else {
-				inBuff.flip();
+				final int n = inBuff.remaining();
 				try {
 					range2read.verify(inBuff);
 					range2read.position(range2read.position() + n);
@@ -717,17 +2053,16 @@ extends NioStorageDriverBase<I, O> {
 				}
 				// set the cell data item internal position to (current offset - cell's offset)
 				currRange.position(currOffset - cellOffset);
-				inputStream.seek(currOffset);
-				final ByteBuffer inBuff = DirectMemUtil.getThreadLocalReusableBuff(
+				final ByteBuffer inBuff = readAt(
+					operation, inputStream, currOffset,
 					Math.min(
 						fixedRangeSize - countBytesDone, currRange.size() - currRange.position()
 					)
 				);
-				final int m = inputStream.read(inBuff);
-				if(m < 0) {
+				if(inBuff == null) {
 					throw new DataSizeException(fixedRangesSizeSum, countBytesDone);
 				} else {
-					inBuff.flip();
+					final int m = inBuff.remaining();
 					try {
 						currRange.verify(inBuff);
 						currRange.position(currRange.position() + m);
@@ -757,6 +2092,90 @@ extends NioStorageDriverBase<I, O> {
 		return fixedRangesSizeSum <= 0 || fixedRangesSizeSum <= countBytesDone;
 	}
 
+	/**
+	 Reads the byte ranges (either random or fixed) coalescing the nearby ones into the single positioned
+	 read, one coalesced read per invocation. The ranges are verified by slicing the read buffer if the
+	 verification is enabled.
+	 */
+	protected boolean invokeFileReadCoalescedRanges(
+		final DataOperation<? extends DataItem> operation, final DataItem fileItem,
+		final FSDataInputStream inputStream
+	)
+	throws DataSizeException, DataCorruptionException, IOException {
+		final long rangesSizeSum = operation.markedRangesSize();
+		if(rangesSizeSum <= 0) {
+			return true;
+		}
+		RangeReadPlan plan = rangeReadPlans.get(operation);
+		if(plan == null) {
+			final List<Range> fixedRanges = operation.fixedRanges();
+			if(fixedRanges == null || fixedRanges.isEmpty()) {
+				plan = new RangeReadPlan(
+					fileItem.size(), operation.markedRangesMaskPair(), readCoalesceGap, readCoalesceLimit
+				);
+			} else {
+				plan = new RangeReadPlan(fileItem.size(), fixedRanges, readCoalesceGap, readCoalesceLimit);
+			}
+			rangeReadPlans.put(operation, plan);
+			coalescedRangeCount.add(plan.pieceCount());
+			coalescedReadCount.add(plan.readCount());
+			coalescedLogicalBytes.add(plan.logicalSize());
+			coalescedPhysicalBytes.add(plan.physicalSize());
+			if(Loggers.MSG.isTraceEnabled()) {
+				Loggers.MSG.trace("{}: byte ranges read: {}", fileItem.name(), plan);
+			}
+		}
+		if(plan.readIdx < plan.readCount()) {
+			final long[] read = plan.read(plan.readIdx);
+			final ByteBuffer buff = ioBuff(read[3]);
+			try {
+				inputStream.readFully(read[2], buff.array(), 0, (int) read[3]);
+			} catch(final EOFException e) {
+				if(verifyFlag) {
+					throw new DataSizeException(rangesSizeSum, 0);
+				}
+				return true;
+			}
+			long countBytesDone = operation.countBytesDone();
+			long[] piece;
+			DataItem pieceContent;
+			long cellOffset;
+			int cellIdx;
+			for(int i = (int) read[0]; i < read[0] + read[1]; i ++) {
+				piece = plan.piece(i);
+				if(verifyFlag) {
+					cellIdx = (int) piece[2];
+					cellOffset = rangeOffset(cellIdx);
+					pieceContent = fileItem.slice(
+						cellOffset, Math.min(fileItem.size(), rangeOffset(cellIdx + 1)) - cellOffset
+					);
+					if(fileItem.isRangeUpdated(cellIdx)) {
+						pieceContent.layer(fileItem.layer() + 1);
+					}
+					pieceContent.position(piece[0] - cellOffset);
+					buff.clear();
+					buff.position((int) (piece[0] - read[2]));
+					buff.limit((int) (piece[0] - read[2] + piece[1]));
+					try {
+						pieceContent.verify(buff.slice());
+					} catch(final DataCorruptionException e) {
+						throw new DataCorruptionException(
+							piece[0] + e.getOffset() - operation.countBytesDone(), e.expected, e.actual
+						);
+					}
+				}
+				countBytesDone += piece[1];
+			}
+			operation.countBytesDone(countBytesDone);
+			plan.readIdx ++;
+		}
+		if(plan.readIdx < plan.readCount()) {
+			return false;
+		}
+		operation.countBytesDone(rangesSizeSum);
+		return true;
+	}
+
 	protected boolean invokeFileRead(
 		final DataOperation<? extends DataItem> operation, final DataItem fileItem,
 		final FSDataInputStream inputStream
@@ -766,9 +2185,14 @@ extends NioStorageDriverBase<I, O> {
 		final long contentSize = fileItem.size();
 		int n;
 		if(countBytesDone < contentSize) {
-			n = inputStream.read(
-				DirectMemUtil.getThreadLocalReusableBuff(contentSize - countBytesDone)
-			);
+			if(sharedInputStreams != null && sharedInputStreams.acquired(operation)) {
+				final ByteBuffer inBuff = pread(inputStream, countBytesDone, contentSize - countBytesDone);
+				n = inBuff == null ? -1 : inBuff.remaining();
+			} else {
+				n = inputStream.read(
+					DirectMemUtil.getThreadLocalReusableBuff(contentSize - countBytesDone)
+				);
+			}
 			if(n < 0) {
 				operation.countBytesDone(countBytesDone);
 				fileItem.size(countBytesDone);
@@ -786,7 +2210,6 @@ extends NioStorageDriverBase<I, O> {
 		final FSDataInputStream inputStream, final BitSet maskRangesPair[]
 	)
 	throws IOException {
-		int n;
 		long countBytesDone = operation.countBytesDone();
 		final long rangesSizeSum = operation.markedRangesSize();
 		if(rangesSizeSum > 0 && rangesSizeSum > countBytesDone) {
@@ -807,15 +2230,15 @@ extends NioStorageDriverBase<I, O> {
 				}
 			}
 			final long currRangeSize = range2read.size();
-			inputStream.seek(rangeOffset(currRangeIdx) + countBytesDone);
-			n = inputStream.read(
-				DirectMemUtil.getThreadLocalReusableBuff(currRangeSize - countBytesDone)
+			final ByteBuffer inBuff = readAt(
+				operation, inputStream, rangeOffset(currRangeIdx) + countBytesDone,
+				currRangeSize - countBytesDone
 			);
-			if(n < 0) {
+			if(inBuff == null) {
 				operation.countBytesDone(countBytesDone);
 				return true;
 			}
-			countBytesDone += n;
+			countBytesDone += inBuff.remaining();
 			if(countBytesDone == currRangeSize) {
 				operation.currRangeIdx(currRangeIdx + 1);
 				operation.countBytesDone(0);
@@ -831,7 +2254,6 @@ extends NioStorageDriverBase<I, O> {
 		final FSDataInputStream inputStream, final List<Range> byteRanges
 	)
 	throws IOException {
-		int n;
 		long countBytesDone = operation.countBytesDone();
 		final long baseItemSize = fileItem.size();
 		final long rangesSizeSum = operation.markedRangesSize();
@@ -855,15 +2277,14 @@ extends NioStorageDriverBase<I, O> {
 				} else {
 					rangeSize = rangeEnd - rangeBeg + 1;
 				}
-				inputStream.seek(rangeBeg + countBytesDone);
-				n = inputStream.read(
-					DirectMemUtil.getThreadLocalReusableBuff(rangeSize - countBytesDone)
+				final ByteBuffer inBuff = readAt(
+					operation, inputStream, rangeBeg + countBytesDone, rangeSize - countBytesDone
 				);
-				if(n < 0) {
+				if(inBuff == null) {
 					operation.countBytesDone(countBytesDone);
 					return true;
 				}
-				countBytesDone += n;
+				countBytesDone += inBuff.remaining();
 				if(countBytesDone == rangeSize) {
 					operation.currRangeIdx(currRangeIdx + 1);
 					operation.countBytesDone(0);
@@ -877,6 +2298,138 @@ extends NioStorageDriverBase<I, O> {
 		return rangesSizeSum <= 0 || rangesSizeSum <= countBytesDone;
 	}
 
+	/**
+	 Emulates the byte ranges update either by truncating the file and appending the new content or by
+	 rewriting the file content into the temporary file replacing the original one then. Writes up to the
+	 reusable buffer size bytes per invocation.
+	 */
+	protected boolean invokeFileRangesUpdate(
+		final DataOperation<? extends DataItem> fileOperation, final DataItem fileItem
+	) throws IOException {
+		final FileSystem endpoint = getEndpoint(fileOperation);
+		final Path filePath = getFilePath(fileOperation.dstPath(), fileItem.name());
+		RangeUpdate rangeUpdate = rangeUpdates.get(fileOperation);
+		if(rangeUpdate == null) {
+			rangeUpdate = new RangeUpdate(fileOperation, ! updateTruncate);
+			rangeUpdates.put(fileOperation, rangeUpdate);
+			invalidate(endpoint, filePath);
+			if(Loggers.MSG.isTraceEnabled()) {
+				Loggers.MSG.trace("{}: byte ranges update: {}", fileItem.name(), rangeUpdate);
+			}
+			if(RangeUpdate.Mode.REWRITE.equals(rangeUpdate.mode())) {
+				rangeUpdate.input = endpoint.open(filePath, inBuffSize);
+				rangeUpdate.tmpFilePath = new Path(
+					filePath.getParent(), "." + filePath.getName() + "." + UUID.randomUUID() + ".tmp"
+				);
+				rangeUpdate.output = createFile(
+					endpoint, rangeUpdate.tmpFilePath, rangeUpdate.fileSize(), false
+				);
+			}
+		}
+		if(rangeUpdate.output == null) {
+			if(! truncateRecovery.truncate(fileOperation, endpoint, filePath, rangeUpdate.truncateSize())) {
+				return false;
+			}
+			rangeUpdate.output = endpoint.append(filePath, outBuffSize);
+		}
+		final long fileSize = rangeUpdate.fileSize();
+		final long physicalBytesBefore = rangeUpdate.physicalBytesDone();
+		long budget = REUSABLE_BUFF_SIZE_MAX;
+		long n;
+		DataItem segmentContent;
+		while(budget > 0 && rangeUpdate.pos < fileSize) {
+			segmentContent = rangeUpdate.currentSegmentContent();
+			if(segmentContent == null) {
+				final ByteBuffer inBuff = pread(
+					rangeUpdate.input, rangeUpdate.pos, Math.min(rangeUpdate.unchangedSize(), budget)
+				);
+				if(inBuff == null) {
+					throw new EOFException("Unexpected end of the file: " + filePath);
+				}
+				n = inBuff.remaining();
+				rangeUpdate.output.write(inBuff.array(), 0, (int) n);
+			} else {
+				n = writeContent(
+					segmentContent, rangeUpdate.output,
+					Math.min(segmentContent.size() - segmentContent.position(), budget)
+				);
+				if(n <= 0) {
+					throw new EOFException("Failed to write the updated content: " + filePath);
+				}
+			}
+			rangeUpdate.pos += n;
+			budget -= n;
+		}
+		flush(
+			rangeUpdate.output, physicalBytesBefore, rangeUpdate.physicalBytesDone(),
+			rangeUpdate.pos >= fileSize
+		);
+		if(rangeUpdate.pos < fileSize) {
+			return false;
+		}
+		rangeUpdate.output.close();
+		rangeUpdate.output = null;
+		if(RangeUpdate.Mode.REWRITE.equals(rangeUpdate.mode())) {
+			rangeUpdate.input.close();
+			rangeUpdate.input = null;
+			if(endpoint instanceof DistributedFileSystem) {
+				((DistributedFileSystem) endpoint).rename(
+					rangeUpdate.tmpFilePath, filePath, Options.Rename.OVERWRITE
+				);
+			} else {
+				endpoint.delete(filePath, false);
+				if(! endpoint.rename(rangeUpdate.tmpFilePath, filePath)) {
+					throw new IOException("Failed to rename " + rangeUpdate.tmpFilePath + " to " + filePath);
+				}
+			}
+			rangeUpdate.tmpFilePath = null;
+			rangeRewriteCount.increment();
+		} else {
+			rangeTruncateAppendCount.increment();
+		}
+		rangeUpdates.remove(fileOperation);
+		rangeUpdateLogicalBytes.add(rangeUpdate.logicalSize());
+		rangeUpdatePhysicalBytes.add(rangeUpdate.physicalSize());
+		final List<Range> fixedRanges = fileOperation.fixedRanges();
+		if(fixedRanges == null || fixedRanges.isEmpty()) {
+			fileItem.commitUpdatedRanges(fileOperation.markedRangesMaskPair());
+		}
+		fileOperation.countBytesDone(rangeUpdate.logicalSize());
+		return true;
+	}
+
+	/**
+	 Cuts the file's tail. The operation remains active while the last block recovery is in progress.
+	 */
+	protected boolean invokeFileTruncate(
+		final DataOperation<? extends DataItem> fileOperation, final DataItem fileItem, final long newSize
+	) throws IOException {
+		final FileSystem endpoint = getEndpoint(fileOperation);
+		final Path filePath = getFilePath(fileOperation.dstPath(), fileItem.name());
+		invalidate(endpoint, filePath);
+		if(truncateRecovery.truncate(fileOperation, endpoint, filePath, newSize)) {
+			fileItem.size(newSize);
+			return true;
+		}
+		return false;
+	}
+
+	private void discardRangeUpdate(final FileSystem endpoint, final RangeUpdate rangeUpdate) {
+		try {
+			if(rangeUpdate.input != null) {
+				rangeUpdate.input.close();
+			}
+			if(rangeUpdate.output != null) {
+				rangeUpdate.output.close();
+			}
+			if(rangeUpdate.tmpFilePath != null) {
+				endpoint.delete(rangeUpdate.tmpFilePath, false);
+			}
+		} catch(final IOException e) {
+			LogUtil.exception(Level.DEBUG, e, "Failed to discard the byte ranges update");
+		}
+	}
+
 	protected boolean invokeFileAppend(
 		final DataOperation<? extends DataItem> operation, final DataItem fileItem,
 		final FSDataOutputStream outputStream, final Range appendRange
@@ -887,10 +2440,8 @@ extends NioStorageDriverBase<I, O> {
 		final long remainingSize = appendSize - countBytesDone;
 		long n;
 		if(remainingSize > 0) {
-			final WritableByteChannel outputChan = OutputStreamWrapperChannel
-				.getThreadLocalInstance(outputStream, remainingSize);
-			n = fileItem.writeToSocketChannel(outputChan, remainingSize);
-			outputStream.hflush();
+			n = writeContent(fileItem, outputStream, remainingSize);
+			flush(outputStream, countBytesDone, countBytesDone + n, n >= remainingSize);
 			operation.countBytesDone(countBytesDone + n);
 			fileItem.size(fileItem.size() + n);
 		}
@@ -903,7 +2454,8 @@ extends NioStorageDriverBase<I, O> {
 		final DataItem fileItem = fileOperation.item();
 		final String itemName = fileItem.name();
 		final Path filePath = getFilePath(dstPath, itemName);
-		final FileSystem endpoint = getEndpoint(getNextEndpointAddr());
+		final FileSystem endpoint = getEndpoint(fileOperation);
+		invalidate(endpoint, filePath);
 		if(! endpoint.delete(filePath, false)) {
 			Loggers.ERR.debug(
 				"Failed to delete the file {} @ {}", filePath,
@@ -921,9 +2473,27 @@ extends NioStorageDriverBase<I, O> {
 		final ItemFactory<I> itemFactory, final String path, final String prefix, final int idRadix,
 		final I lastPrevItem, final int count
 	) throws IOException {
-		return ListHelper.list(
-			itemFactory, path, prefix, idRadix, lastPrevItem, count, getEndpoint(endpointAddrs[0])
-		);
+		if(nameSpaceRouter == null) {
+			return ListHelper.list(
+				itemFactory, path, prefix, idRadix, lastPrevItem, count, endpoints[0]
+			);
+		}
+		// list the name spaces one by one starting from the one containing the last listed item
+		int i = lastPrevItem == null ? 0 : endpointIndex(NameSpaceRouter.nameSpaceOf(lastPrevItem.name()));
+		if(i < 0) {
+			i = 0;
+		}
+		final List<I> items = new ArrayList<>(count);
+		I lastItem = lastPrevItem;
+		for(; i < endpoints.length && items.size() < count; i ++) {
+			items.addAll(
+				ListHelper.list(
+					itemFactory, path, prefix, idRadix, lastItem, count - items.size(), endpoints[i], true
+				)
+			);
+			lastItem = null;
+		}
+		return items;
 	}
 
 	@Override
@@ -949,6 +2519,148 @@ extends NioStorageDriverBase<I, O> {
 	protected void doClose()
 	throws IOException {
 		super.doClose();
+		final long concatCountSum = concatCount.sum();
+		if(concatCountSum > 0) {
+			Loggers.MSG.info(
+				"{}: concatenations: {}, mean source files count: {}, mean size: {}, mean time: {}[ms]", stepId,
+				concatCountSum, concatSrcCount.sum() / concatCountSum,
+				SizeInBytes.formatFixedSize(concatBytes.sum() / concatCountSum),
+				TimeUnit.NANOSECONDS.toMillis(concatNanos.sum() / concatCountSum)
+			);
+		}
+		final long multipartCreateCountSum = multipartCreateCount.sum();
+		if(multipartCreateCountSum > 0) {
+			Loggers.MSG.info(
+				"{}: multipart creates: {}, mean parts count: {}, mean concat time: {}[ms]", stepId,
+				multipartCreateCountSum, multipartPartCount.sum() / multipartCreateCountSum,
+				TimeUnit.NANOSECONDS.toMillis(multipartConcatNanos.sum() / multipartCreateCountSum)
+			);
+		}
+		if(truncateRecovery.truncateCount() > 0) {
+			Loggers.MSG.info("{}: {}", stepId, truncateRecovery);
+		}
+		final long rangeUpdateCount = rangeRewriteCount.sum() + rangeTruncateAppendCount.sum();
+		if(rangeUpdateCount > 0) {
+			final long logicalBytes = rangeUpdateLogicalBytes.sum();
+			final long physicalBytes = rangeUpdatePhysicalBytes.sum();
+			Loggers.MSG.info(
+				"{}: byte ranges updates by rewrite: {}, by truncate+append: {}, updated bytes: {}, written "
+					+ "bytes: {}, write amplification: {}",
+				stepId, rangeRewriteCount.sum(), rangeTruncateAppendCount.sum(),
+				SizeInBytes.formatFixedSize(logicalBytes), SizeInBytes.formatFixedSize(physicalBytes),
+				String.format("%.3f", logicalBytes > 0 ? ((double) physicalBytes) / logicalBytes : 0.0)
+			);
+		}
+		if(packEnabled) {
+			for(final PackContainer container : packContainers.values()) {
+				if(container.output != null) {
+					container.output.close();
+					container.output = null;
+				}
+			}
+			packContainers.clear();
+			Loggers.MSG.info(
+				"{}: packed items: {}, container files: {}", stepId, packedItemCount.sum(),
+				packContainerCount.sum()
+			);
+		}
+		final long copyCountSum = copyCount.sum();
+		if(copyCountSum > 0) {
+			final long copyNanosSum = copyNanos.sum();
+			Loggers.MSG.info(
+				"{}: copies: {}, mean size: {}, mean copy throughput: {}/s", stepId, copyCountSum,
+				SizeInBytes.formatFixedSize(copyBytes.sum() / copyCountSum),
+				SizeInBytes.formatFixedSize(
+					copyNanosSum > 0 ? copyBytes.sum() * TimeUnit.SECONDS.toNanos(1) / copyNanosSum : 0
+				)
+			);
+		}
+		if(compositeCrcVerifier != null && verifyFlag) {
+			Loggers.MSG.info("{}: composite CRC verification: {}", stepId, compositeCrcVerifier);
+		}
+		if(verifyPipeline != null) {
+			verifyPipeline.close();
+			Loggers.MSG.info("{}: read content verification pipeline: {}", stepId, verifyPipeline);
+		}
+		if(copyPrefetcher != null) {
+			copyPrefetcher.close();
+			Loggers.MSG.info("{}: copy read-ahead: {}", stepId, copyPrefetcher);
+		}
+		final long coalescedReadCountSum = coalescedReadCount.sum();
+		if(coalescedReadCountSum > 0) {
+			Loggers.MSG.info(
+				"{}: byte ranges pieces: {}, coalesced reads: {}, requested bytes: {}, read bytes: {}", stepId,
+				coalescedRangeCount.sum(), coalescedReadCountSum,
+				SizeInBytes.formatFixedSize(coalescedLogicalBytes.sum()),
+				SizeInBytes.formatFixedSize(coalescedPhysicalBytes.sum())
+			);
+		}
+		if(sharedInputStreams != null) {
+			sharedInputStreams.close();
+			Loggers.MSG.info("{}: shared read input streams: {}", stepId, sharedInputStreams);
+		}
+		if(asyncCloser != null) {
+			asyncCloser.close();
+			Loggers.MSG.info("{}: asynchronous output closes: {}", stepId, asyncCloser);
+		}
+		if(failoverCounters != null) {
+			CountingFailoverProxyProvider.unregister(failoverCountersId);
+			final long failoverCount = failoverCounters.failoverCount();
+			final long failoverDoneCount = failoverCounters.failoverDoneCount();
+			final long failoverNanos = failoverCounters.failoverNanos();
+			Loggers.MSG.info(
+				"{}: HA name service \"{}\" failovers: {}, completed: {}, mean failover latency: {}[ms]",
+				stepId, haNameService, failoverCount, failoverDoneCount,
+				failoverDoneCount > 0 ? TimeUnit.NANOSECONDS.toMillis(failoverNanos / failoverDoneCount) : 0
+			);
+		}
+		if(endpointAddrs.length > 1) {
+			Loggers.MSG.info("{}: {}", stepId, endpointBalancer);
+		}
+		if(clientShards > 1) {
+			final StringBuilder sb = new StringBuilder();
+			for(int i = 0; i < endpointAddrs.length; i ++) {
+				sb.append("\n\t").append(endpointAddrs[i]).append(": ");
+				for(int j = 0; j < clientShards; j ++) {
+					final int shardIdx = i * clientShards + j;
+					sb
+						.append(j == 0 ? "" : ", ").append(clientShardOps.get(shardIdx)).append('/')
+						.append(clientShardPeakOps.get(shardIdx));
+				}
+			}
+			Loggers.MSG.info("{}: endpoint client shards in-flight/peak operations:{}", stepId, sb);
+		}
+		Loggers.MSG.info("{}: created files count per block size/replication: {}", stepId, blockLayoutRules);
+		if(storagePolicySatisfier != null) {
+			Loggers.MSG.info("{}: storage policy update: {}", stepId, storagePolicySatisfier);
+		}
+		if(ecPolicy != null) {
+			Loggers.MSG.info(
+				"{}: files created with the erasure coding policy \"{}\": {}", stepId, ecPolicy,
+				ecFileCount.sum()
+			);
+		}
+		if(stripedReadStats.readCount() > 0) {
+			Loggers.MSG.info("{}: erasure coded files {}", stepId, stripedReadStats);
+		}
+		final long flushCountSum = flushCount.sum();
+		Loggers.MSG.info(
+			"{}: flush policy: {}, flushes: {}, mean flush latency: {}[us]", stepId, flushPolicy,
+			flushCountSum,
+			flushCountSum > 0 ? TimeUnit.NANOSECONDS.toMicros(flushNanos.sum() / flushCountSum) : 0
+		);
+		if(hedgedReadMetrics != null) {
+			final long hedgedReadOps = hedgedReadMetrics.getHedgedReadOps() - hedgedReadOpsBefore;
+			final long hedgedReadWins = hedgedReadMetrics.getHedgedReadWins() - hedgedReadWinsBefore;
+			// the metrics are JVM wide, so the hedged reads by the other drivers running concurrently are counted
+			Loggers.MSG.info(
+				"{}: hedged reads issued: {}, won: {}, lost: {} (including the concurrent steps if any)",
+				stepId, hedgedReadOps, hedgedReadWins, hedgedReadOps - hedgedReadWins
+			);
+		}
+		if(readLocalityStats != null) {
+			Loggers.MSG.info("{}: read locality: {}", stepId, readLocalityStats);
+		}
 		hadoopConfig.clear();
 		for(final FSDataInputStream input : fileInputStreams.values()) {
 			input.close();
@@ -959,8 +2671,22 @@ extends NioStorageDriverBase<I, O> {
 		}
 		fileOutputStreams.clear();
 		for(int i = 0; i < endpointAddrs.length; i++) {
+			// the HA endpoint's 1st shard is not the cached instance too
+			for(int j = haNameService == null ? 1 : 0; j < clientShards; j ++) {
+				try {
+					endpointClients[i][j].close();
+				} catch(final IOException e) {
+					LogUtil.exception(Level.WARN, e, "Failed to close the endpoint client");
+				}
+				endpointClients[i][j] = null;
+			}
+			endpointClients[i][0] = null;
 			endpointAddrs[i] = null;
+			endpoints[i] = null;
 		}
+		extraEndpoints.clear();
+		preparedEndpointOps.clear();
+		startedEndpointOps.clear();
 		if(ugi != null) {
 			FileSystem.closeAllForUGI(ugi);
 		} else {
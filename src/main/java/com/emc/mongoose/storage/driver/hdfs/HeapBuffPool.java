@@ -0,0 +1,82 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ The reusable heap buffers pool. The buffer size is the requested size rounded up to the power of 2 and
+ limited by the max size, so the operations on the small items don't take the max size buffers. The free
+ buffers are pooled by the size, the count of the free buffers kept per size is limited and the excess
+ released buffers are left to the garbage collector, so the pool shrinks after the load peak.
+ */
+public final class HeapBuffPool {
+
+	private final int sizeMin;
+	private final int sizeMax;
+	private final int freeLimit;
+	private final Queue<byte[]>[] freeBuffs;
+	private final AtomicIntegerArray freeCounts;
+
+	/**
+	 @param sizeMin the min buffer size, rounded up to the power of 2
+	 @param sizeMax the max buffer size, rounded up to the power of 2
+	 @param freeLimit the max count of the free buffers kept per size
+	 */
+	@SuppressWarnings("unchecked")
+	public HeapBuffPool(final int sizeMin, final int sizeMax, final int freeLimit) {
+		this.sizeMin = ceilPowerOf2(sizeMin);
+		this.sizeMax = ceilPowerOf2(Math.max(sizeMin, sizeMax));
+		this.freeLimit = freeLimit;
+		final int sizeCount = Integer.numberOfTrailingZeros(this.sizeMax)
+			- Integer.numberOfTrailingZeros(this.sizeMin) + 1;
+		freeBuffs = new Queue[sizeCount];
+		for(int i = 0; i < sizeCount; i ++) {
+			freeBuffs[i] = new ConcurrentLinkedQueue<>();
+		}
+		freeCounts = new AtomicIntegerArray(sizeCount);
+	}
+
+	private static int ceilPowerOf2(final int n) {
+		return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+	}
+
+	private int sizeIndex(final int buffSize) {
+		return Integer.numberOfTrailingZeros(buffSize) - Integer.numberOfTrailingZeros(sizeMin);
+	}
+
+	/**
+	 @param size the count of the bytes to fit
+	 @return the buffer which size is not less than the given size (if it's not more than the max size)
+	 */
+	public byte[] take(final long size) {
+		final int buffSize = size <= sizeMin ?
+			sizeMin : (size >= sizeMax ? sizeMax : ceilPowerOf2((int) size));
+		final int i = sizeIndex(buffSize);
+		final byte[] buff = freeBuffs[i].poll();
+		if(buff == null) {
+			return new byte[buffSize];
+		}
+		freeCounts.decrementAndGet(i);
+		return buff;
+	}
+
+	/**
+	 @param buff the buffer taken from this pool before
+	 */
+	public void release(final byte[] buff) {
+		final int i = sizeIndex(buff.length);
+		if(freeCounts.incrementAndGet(i) > freeLimit) {
+			freeCounts.decrementAndGet(i);
+		} else {
+			freeBuffs[i].offer(buff);
+		}
+	}
+
+	public void clear() {
+		for(int i = 0; i < freeBuffs.length; i ++) {
+			freeBuffs[i].clear();
+			freeCounts.set(i, 0);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+/**
+ Chooses the endpoint with the least outstanding operations count. The search starts from the round-robin
+ position to spread the operations evenly between the equally loaded endpoints.
+ */
+public final class LeastOpsEndpointBalancer
+extends EndpointBalancerBase {
+
+	public LeastOpsEndpointBalancer(
+		final String[] endpointAddrs, final double ewmaAlpha, final int ejectFailures,
+		final long ejectPeriodMillis
+	) {
+		super(endpointAddrs, ewmaAlpha, ejectFailures, ejectPeriodMillis);
+	}
+
+	@Override
+	protected final int choose() {
+		final int offset = nextRoundRobinIndex();
+		int bestIdx = -1;
+		int minOps = Integer.MAX_VALUE;
+		int i;
+		int n;
+		for(int j = 0; j < endpointCount; j ++) {
+			i = (offset + j) % endpointCount;
+			n = outstandingOps.get(i);
+			if(n < minOps && eligible(i)) {
+				minOps = n;
+				bestIdx = i;
+			}
+		}
+		return bestIdx;
+	}
+}
@@ -19,6 +19,16 @@ public interface ListHelper {
 		final ItemFactory<I> itemFactory, final String path, final String prefix, final int idRadix,
 		final I lastPrevItem, final int count, final FileSystem endpoint
 	) throws IOException {
+		return list(itemFactory, path, prefix, idRadix, lastPrevItem, count, endpoint, false);
+	}
+
+	/**
+	 @param qualifiedNames if true the listed items names are qualified with the endpoint URI
+	 */
+	static <I extends Item> List<I> list(
+		final ItemFactory<I> itemFactory, final String path, final String prefix, final int idRadix,
+		final I lastPrevItem, final int count, final FileSystem endpoint, final boolean qualifiedNames
+	) throws IOException {
 
 		final RemoteIterator<LocatedFileStatus> it = endpoint.listFiles(new Path(path), false);
 		final List<I> items = new ArrayList<>(count);
@@ -59,7 +69,8 @@ public interface ListHelper {
 				}
 			}
 			nextPath = lfs.getPath();
-			nextPathStr = nextPath.toUri().getPath();
+			nextPathStr = qualifiedNames ?
+				endpoint.makeQualified(nextPath).toString() : nextPath.toUri().getPath();
 			nextName = nextPath.getName();
 
 			if(!lastPrevItemNameFound) {
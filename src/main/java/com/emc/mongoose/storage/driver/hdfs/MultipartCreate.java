@@ -0,0 +1,94 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.emc.mongoose.base.item.DataItem;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+
+/**
+ The state of the file being created by parts: the file content is split into the block aligned parts
+ which are written into the separate part files (so each part has its own write pipeline), then the part
+ files are concatenated into the 1st part file. The 1st part file is the destination file itself, so the
+ resulting file has the same content as if it would be written sequentially.
+ */
+public final class MultipartCreate {
+
+	public static final String PART_SUFFIX = ".part-";
+
+	private final Path filePath;
+	private final long partSize;
+	private final Path[] partPaths;
+	private final DataItem[] partContents;
+	final FSDataOutputStream[] outputs;
+	final long[] partBytesDone;
+
+	/**
+	 @param partCount the count of the parts to split the file into
+	 @param alignment the part size is rounded up to the multiple of this value (block size)
+	 */
+	public MultipartCreate(
+		final DataItem fileItem, final Path filePath, final int partCount, final long alignment
+	) throws IOException {
+		this.filePath = filePath;
+		final long fileSize = fileItem.size();
+		final long minPartSize = (fileSize + partCount - 1) / partCount;
+		partSize = alignment > 0 ? (minPartSize + alignment - 1) / alignment * alignment : minPartSize;
+		final int n = (int) ((fileSize + partSize - 1) / partSize);
+		partPaths = new Path[n];
+		partContents = new DataItem[n];
+		outputs = new FSDataOutputStream[n];
+		partBytesDone = new long[n];
+		for(int i = 0; i < n; i ++) {
+			partPaths[i] = i == 0 ?
+				filePath : new Path(filePath.getParent(), filePath.getName() + PART_SUFFIX + i);
+			final long partOffset = i * partSize;
+			partContents[i] = fileItem.slice(partOffset, Math.min(partSize, fileSize - partOffset));
+		}
+	}
+
+	public Path filePath() {
+		return filePath;
+	}
+
+	public long partSize() {
+		return partSize;
+	}
+
+	public int partCount() {
+		return partPaths.length;
+	}
+
+	public Path partPath(final int i) {
+		return partPaths[i];
+	}
+
+	/**
+	 @return the content of the part positioned to the part's bytes written count
+	 */
+	DataItem partContent(final int i)
+	throws IOException {
+		final DataItem partContent = partContents[i];
+		partContent.position(partBytesDone[i]);
+		return partContent;
+	}
+
+	long partRemainingSize(final int i)
+	throws IOException {
+		return partContents[i].size() - partBytesDone[i];
+	}
+
+	/**
+	 @return the part files except the 1st one, to be concatenated to the 1st one
+	 */
+	Path[] srcPartPaths() {
+		final Path[] srcPartPaths = new Path[partPaths.length - 1];
+		System.arraycopy(partPaths, 1, srcPartPaths, 0, srcPartPaths.length);
+		return srcPartPaths;
+	}
+
+	@Override
+	public String toString() {
+		return filePath + ": " + partPaths.length + " parts of " + partSize + " bytes";
+	}
+}
@@ -0,0 +1,66 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+/**
+ Distributes the items between the federated name spaces using the rendezvous (highest random weight)
+ hashing of the item's file name, so adding or removing a name space moves only the items which belong to
+ it. An item name which is qualified with the name space URI (e.g. "hdfs://ns1/dir/file") is routed to
+ that name space directly.
+ */
+public final class NameSpaceRouter {
+
+	private final String[] nameSpaceUris;
+	private final long[] nameSpaceSeeds;
+
+	public NameSpaceRouter(final String[] nameSpaceUris) {
+		this.nameSpaceUris = nameSpaceUris;
+		nameSpaceSeeds = new long[nameSpaceUris.length];
+		for(int i = 0; i < nameSpaceUris.length; i ++) {
+			nameSpaceSeeds[i] = mix(nameSpaceUris[i].hashCode());
+		}
+	}
+
+	// the 64 bit finalizer from the MurmurHash3
+	private static long mix(long x) {
+		x ^= x >>> 33;
+		x *= 0xff51afd7ed558ccdL;
+		x ^= x >>> 33;
+		x *= 0xc4ceb9fe1a85ec53L;
+		x ^= x >>> 33;
+		return x;
+	}
+
+	/**
+	 @return the URI prefix of the qualified item name or null if the item name is not qualified
+	 */
+	static String nameSpaceOf(final String itemName) {
+		final int schemaSepPos = itemName.indexOf("://");
+		if(schemaSepPos < 0) {
+			return null;
+		}
+		final int pathStartPos = itemName.indexOf('/', schemaSepPos + 3);
+		return pathStartPos < 0 ? itemName : itemName.substring(0, pathStartPos);
+	}
+
+	public int nameSpaceIndex(final String itemName) {
+		final String nameSpace = nameSpaceOf(itemName);
+		if(nameSpace != null) {
+			for(int i = 0; i < nameSpaceUris.length; i ++) {
+				if(nameSpaceUris[i].equals(nameSpace)) {
+					return i;
+				}
+			}
+		}
+		final long fileNameHash = mix(itemName.substring(itemName.lastIndexOf('/') + 1).hashCode());
+		int selectedIdx = 0;
+		long maxWeight = Long.MIN_VALUE;
+		long weight;
+		for(int i = 0; i < nameSpaceSeeds.length; i ++) {
+			weight = mix(fileNameHash ^ nameSpaceSeeds[i]);
+			if(weight > maxWeight) {
+				maxWeight = weight;
+				selectedIdx = i;
+			}
+		}
+		return selectedIdx;
+	}
+}
@@ -0,0 +1,135 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import org.apache.hadoop.fs.ByteBufferReadable;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSInputStream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ The input stream of the packed item: the region of the container file input stream. The positions are
+ relative to the item's offset in the container and the reads are bounded by the item's length.
+ */
+public final class PackedFileInputStream
+extends FSInputStream
+implements ByteBufferReadable {
+
+	private final FSDataInputStream containerInput;
+	private final long offset;
+	private final long length;
+	private long pos = 0;
+
+	public PackedFileInputStream(
+		final FSDataInputStream containerInput, final long offset, final long length
+	) {
+		this.containerInput = containerInput;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override
+	public void seek(final long pos)
+	throws IOException {
+		if(pos < 0 || pos > length) {
+			throw new EOFException("Invalid position " + pos + " for the packed item of length " + length);
+		}
+		this.pos = pos;
+	}
+
+	@Override
+	public long getPos() {
+		return pos;
+	}
+
+	@Override
+	public boolean seekToNewSource(final long targetPos)
+	throws IOException {
+		return containerInput.seekToNewSource(offset + targetPos);
+	}
+
+	@Override
+	public int available() {
+		final long remaining = length - pos;
+		return remaining > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) remaining;
+	}
+
+	@Override
+	public int read()
+	throws IOException {
+		if(pos >= length) {
+			return -1;
+		}
+		containerInput.seek(offset + pos);
+		final int b = containerInput.read();
+		if(b >= 0) {
+			pos ++;
+		}
+		return b;
+	}
+
+	@Override
+	public int read(final byte[] buff, final int off, final int len)
+	throws IOException {
+		if(len == 0) {
+			return 0;
+		}
+		final long remaining = length - pos;
+		if(remaining <= 0) {
+			return -1;
+		}
+		containerInput.seek(offset + pos);
+		final int n = containerInput.read(buff, off, remaining < len ? (int) remaining : len);
+		if(n > 0) {
+			pos += n;
+		}
+		return n;
+	}
+
+	@Override
+	public int read(final ByteBuffer buff)
+	throws IOException {
+		if(! buff.hasRemaining()) {
+			return 0;
+		}
+		final long remaining = length - pos;
+		if(remaining <= 0) {
+			return -1;
+		}
+		final int limit = buff.limit();
+		if(remaining < buff.remaining()) {
+			buff.limit(buff.position() + (int) remaining);
+		}
+		containerInput.seek(offset + pos);
+		final int n;
+		try {
+			n = containerInput.read(buff);
+		} finally {
+			buff.limit(limit);
+		}
+		if(n > 0) {
+			pos += n;
+		}
+		return n;
+	}
+
+	@Override
+	public int read(final long position, final byte[] buff, final int off, final int len)
+	throws IOException {
+		if(len == 0) {
+			return 0;
+		}
+		final long remaining = length - position;
+		if(position < 0 || remaining <= 0) {
+			return -1;
+		}
+		return containerInput.read(offset + position, buff, off, remaining < len ? (int) remaining : len);
+	}
+
+	@Override
+	public void close()
+	throws IOException {
+		containerInput.close();
+	}
+}
@@ -0,0 +1,51 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import org.apache.hadoop.fs.Path;
+
+/**
+ The packed item name encodes the container file name and the item's offset in the container:
+ "&lt;itemName&gt;@&lt;containerName&gt;@&lt;offset&gt;". The item's length is the item's size. The container file
+ is located in the same directory as the item would be.
+ */
+public interface PackedItems {
+
+	char SEP = '@';
+	String CONTAINER_NAME_PREFIX = "pack-";
+
+	static String packedName(final String itemName, final String containerName, final long offset) {
+		return itemName + SEP + containerName + SEP + offset;
+	}
+
+	/**
+	 @return the container name or null if the item name is not a packed one
+	 */
+	static String containerName(final String itemName) {
+		final int offsetSepPos = itemName.lastIndexOf(SEP);
+		if(offsetSepPos < 0) {
+			return null;
+		}
+		final int containerSepPos = itemName.lastIndexOf(SEP, offsetSepPos - 1);
+		if(containerSepPos < 0) {
+			return null;
+		}
+		final String containerName = itemName.substring(containerSepPos + 1, offsetSepPos);
+		return containerName.startsWith(CONTAINER_NAME_PREFIX) ? containerName : null;
+	}
+
+	static long offset(final String packedName) {
+		return Long.parseLong(packedName.substring(packedName.lastIndexOf(SEP) + 1));
+	}
+
+	static String itemName(final String packedName) {
+		return packedName.substring(0, packedName.lastIndexOf(SEP, packedName.lastIndexOf(SEP) - 1));
+	}
+
+	/**
+	 @param itemPath the path of the item as if it would be stored in the separate file
+	 @return the path of the container file
+	 */
+	static Path containerPath(final Path itemPath, final String containerName) {
+		final Path dirPath = itemPath.getParent();
+		return dirPath == null ? new Path(containerName) : new Path(dirPath, containerName);
+	}
+}
@@ -0,0 +1,49 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ Picks two random endpoints and chooses the one with the least expected wait (see
+ {@link EwmaEndpointBalancer}). Avoids the herd behavior of the full scan while scaling to many endpoints.
+ */
+public final class PowerOfTwoChoicesEndpointBalancer
+extends EndpointBalancerBase {
+
+	public PowerOfTwoChoicesEndpointBalancer(
+		final String[] endpointAddrs, final double ewmaAlpha, final int ejectFailures,
+		final long ejectPeriodMillis
+	) {
+		super(endpointAddrs, ewmaAlpha, ejectFailures, ejectPeriodMillis);
+	}
+
+	private long cost(final int i) {
+		return durationEwma.get(i) * (outstandingOps.get(i) + 1);
+	}
+
+	@Override
+	protected final int choose() {
+		final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+		final int i = rnd.nextInt(endpointCount);
+		int j = rnd.nextInt(endpointCount - 1);
+		if(j >= i) {
+			j ++;
+		}
+		final int k = cost(i) <= cost(j) ? i : j;
+		if(eligible(k)) {
+			return k;
+		}
+		final int l = k == i ? j : i;
+		if(eligible(l)) {
+			return l;
+		}
+		// both are ejected, try the others
+		int m;
+		for(int n = 0; n < endpointCount; n ++) {
+			m = nextRoundRobinIndex();
+			if(eligible(m)) {
+				return m;
+			}
+		}
+		return -1;
+	}
+}
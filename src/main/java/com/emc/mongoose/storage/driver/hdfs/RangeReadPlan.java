@@ -0,0 +1,156 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.github.akurilov.commons.collection.Range;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static com.emc.mongoose.base.item.DataItem.rangeCount;
+import static com.emc.mongoose.base.item.DataItem.rangeOffset;
+
+/**
+ The byte ranges read plan: the ranges to read are split by the data item's cells (so each piece has the
+ single layer content to verify) and by the read size limit, sorted by the offset and the nearby pieces are
+ coalesced into the single positioned read. The gap bytes between the coalesced pieces are read and skipped.
+ */
+public final class RangeReadPlan {
+
+	// [file offset, size, cell index]
+	private final List<long[]> pieces = new ArrayList<>();
+	// [1st piece index, pieces count, file offset, size]
+	private final List<long[]> reads = new ArrayList<>();
+	private final long logicalSize;
+	private final long physicalSize;
+
+	int readIdx = 0;
+
+	/**
+	 @param maskRangesPair the data item's cells to read
+	 */
+	public RangeReadPlan(
+		final long fileSize, final BitSet[] maskRangesPair, final long gapLimit, final long readSizeLimit
+	) {
+		final int rangeCount = rangeCount(fileSize);
+		for(int i = 0; i < rangeCount; i ++) {
+			if(maskRangesPair[0].get(i) || maskRangesPair[1].get(i)) {
+				addPieces(rangeOffset(i), Math.min(fileSize, rangeOffset(i + 1)), readSizeLimit);
+			}
+		}
+		final long[] sizes = coalesce(gapLimit, readSizeLimit);
+		logicalSize = sizes[0];
+		physicalSize = sizes[1];
+	}
+
+	public RangeReadPlan(
+		final long fileSize, final List<Range> fixedRanges, final long gapLimit, final long readSizeLimit
+	) {
+		for(final Range fixedRange : fixedRanges) {
+			long rangeBeg = fixedRange.getBeg();
+			final long rangeEnd = fixedRange.getEnd();
+			final long rangeSize;
+			if(rangeBeg == - 1) {
+				// last "rangeEnd" bytes
+				rangeBeg = fileSize - rangeEnd;
+				rangeSize = rangeEnd;
+			} else if(rangeEnd == - 1) {
+				// start @ offset equal to "rangeBeg"
+				rangeSize = fileSize - rangeBeg;
+			} else {
+				rangeSize = Math.min(rangeEnd + 1, fileSize) - rangeBeg;
+			}
+			if(rangeBeg >= 0 && rangeSize > 0) {
+				addPieces(rangeBeg, rangeBeg + rangeSize, readSizeLimit);
+			}
+		}
+		final long[] sizes = coalesce(gapLimit, readSizeLimit);
+		logicalSize = sizes[0];
+		physicalSize = sizes[1];
+	}
+
+	private void addPieces(final long beg, final long end, final long readSizeLimit) {
+		long offset = beg;
+		int cellIdx;
+		long pieceEnd;
+		while(offset < end) {
+			cellIdx = rangeCount(offset + 1) - 1;
+			pieceEnd = Math.min(Math.min(end, rangeOffset(cellIdx + 1)), offset + readSizeLimit);
+			pieces.add(new long[] { offset, pieceEnd - offset, cellIdx });
+			offset = pieceEnd;
+		}
+	}
+
+	/**
+	 @return the requested and the read bytes counts
+	 */
+	private long[] coalesce(final long gapLimit, final long readSizeLimit) {
+		pieces.sort((p1, p2) -> Long.compare(p1[0], p2[0]));
+		long logicalSize = 0;
+		long physicalSize = 0;
+		long[] read = null;
+		long[] piece;
+		long pieceEnd;
+		for(int i = 0; i < pieces.size(); i ++) {
+			piece = pieces.get(i);
+			pieceEnd = piece[0] + piece[1];
+			logicalSize += piece[1];
+			if(
+				read != null && piece[0] - (read[2] + read[3]) <= gapLimit
+					&& pieceEnd - read[2] <= readSizeLimit
+			) {
+				read[1] ++;
+				if(pieceEnd > read[2] + read[3]) {
+					physicalSize += pieceEnd - read[2] - read[3];
+					read[3] = pieceEnd - read[2];
+				}
+			} else {
+				read = new long[] { i, 1, piece[0], piece[1] };
+				reads.add(read);
+				physicalSize += piece[1];
+			}
+		}
+		return new long[] { logicalSize, physicalSize };
+	}
+
+	public int readCount() {
+		return reads.size();
+	}
+
+	/**
+	 @return [1st piece index, pieces count, file offset, size]
+	 */
+	long[] read(final int i) {
+		return reads.get(i);
+	}
+
+	public int pieceCount() {
+		return pieces.size();
+	}
+
+	/**
+	 @return [file offset, size, cell index]
+	 */
+	long[] piece(final int i) {
+		return pieces.get(i);
+	}
+
+	/**
+	 @return the count of the requested bytes
+	 */
+	public long logicalSize() {
+		return logicalSize;
+	}
+
+	/**
+	 @return the count of the bytes to read including the gaps
+	 */
+	public long physicalSize() {
+		return physicalSize;
+	}
+
+	@Override
+	public String toString() {
+		return "ranges pieces: " + pieces.size() + ", reads: " + reads.size() + ", requested bytes: "
+			+ logicalSize + ", bytes to read: " + physicalSize;
+	}
+}
@@ -0,0 +1,218 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.item.op.data.DataOperation;
+import com.github.akurilov.commons.collection.Range;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static com.emc.mongoose.base.item.DataItem.rangeCount;
+import static com.emc.mongoose.base.item.DataItem.rangeOffset;
+
+/**
+ The state of the emulated byte ranges update: the sorted list of the updated file regions with their new
+ content and the progress of writing the new file content. HDFS files may be only appended, so the update
+ is done either by truncating the file to the beginning of the updated regions and appending the new
+ content (if the updated regions form the contiguous tail of the file) or by rewriting the whole file into
+ the temporary file (the unchanged bytes are copied from the original file) which replaces the original one
+ then.
+ */
+public final class RangeUpdate {
+
+	public enum Mode {
+		TRUNCATE_APPEND,
+		REWRITE,
+	}
+
+	private final long fileSize;
+	private final List<long[]> segments = new ArrayList<>(); // [offset, size, layer]
+	private final DataItem fileItem;
+	private final long logicalSize;
+	private final Mode mode;
+	private final long startPos;
+
+	long pos;
+	int segmentIdx = 0;
+	DataItem segmentContent = null;
+	Path tmpFilePath = null;
+	FSDataInputStream input = null;
+	FSDataOutputStream output = null;
+
+	/**
+	 @param rewriteOnly if true the truncate+append mode is not used
+	 @throws IOException if failed to determine the item's size
+	 @throws IllegalArgumentException if the fixed ranges include the appended one
+	 */
+	public RangeUpdate(final DataOperation<? extends DataItem> operation, final boolean rewriteOnly)
+	throws IOException {
+		fileItem = operation.item();
+		fileSize = fileItem.size();
+		final List<Range> fixedRanges = operation.fixedRanges();
+		if(fixedRanges == null || fixedRanges.isEmpty()) {
+			final BitSet[] maskRangesPair = operation.markedRangesMaskPair();
+			final int rangeCount = rangeCount(fileSize);
+			for(int i = 0; i < rangeCount; i ++) {
+				if(maskRangesPair[0].get(i) || maskRangesPair[1].get(i)) {
+					operation.currRangeIdx(i);
+					final DataItem rangeUpdate = operation.currRangeUpdate();
+					final long rangeOffset = rangeOffset(i);
+					addSegment(
+						rangeOffset, Math.min(fileSize, rangeOffset(i + 1)) - rangeOffset, rangeUpdate.layer()
+					);
+				}
+			}
+			operation.currRangeIdx(0);
+		} else {
+			// the fixed ranges are sorted by the offset, the overlapping regions are written only once
+			final List<long[]> unsortedSegments = new ArrayList<>(fixedRanges.size());
+			for(final Range fixedRange : fixedRanges) {
+				if(fixedRange.getSize() > 0) {
+					// the driver rejects such operations before
+					throw new IllegalArgumentException(
+						"Appending together with the other byte ranges update isn't supported"
+					);
+				}
+				long rangeBeg = fixedRange.getBeg();
+				final long rangeEnd = fixedRange.getEnd();
+				final long rangeSize;
+				if(rangeBeg == - 1) {
+					// last "rangeEnd" bytes
+					rangeBeg = fileSize - rangeEnd;
+					rangeSize = rangeEnd;
+				} else if(rangeEnd == - 1) {
+					// start @ offset equal to "rangeBeg"
+					rangeSize = fileSize - rangeBeg;
+				} else {
+					rangeSize = Math.min(rangeEnd + 1, fileSize) - rangeBeg;
+				}
+				if(rangeBeg >= 0 && rangeSize > 0) {
+					unsortedSegments.add(new long[] { rangeBeg, rangeSize, fileItem.layer() + 1 });
+				}
+			}
+			unsortedSegments.sort((s1, s2) -> Long.compare(s1[0], s2[0]));
+			for(final long[] segment : unsortedSegments) {
+				addSegment(segment[0], segment[1], segment[2]);
+			}
+		}
+		long updatedSize = 0;
+		for(final long[] segment : segments) {
+			updatedSize += segment[1];
+		}
+		logicalSize = updatedSize;
+		// check if the updated regions form the contiguous tail of the file
+		boolean tail = ! segments.isEmpty() && ! rewriteOnly;
+		if(tail) {
+			long nextOffset = segments.get(0)[0];
+			for(final long[] segment : segments) {
+				if(segment[0] != nextOffset) {
+					tail = false;
+					break;
+				}
+				nextOffset = segment[0] + segment[1];
+			}
+			tail = tail && nextOffset == fileSize && segments.get(0)[0] > 0;
+		}
+		if(tail) {
+			mode = Mode.TRUNCATE_APPEND;
+			startPos = segments.get(0)[0];
+		} else {
+			mode = Mode.REWRITE;
+			startPos = 0;
+		}
+		pos = startPos;
+	}
+
+	private void addSegment(long offset, long size, final long layer) {
+		if(! segments.isEmpty()) {
+			final long[] prevSegment = segments.get(segments.size() - 1);
+			final long prevSegmentEnd = prevSegment[0] + prevSegment[1];
+			if(offset < prevSegmentEnd) {
+				// skip the overlapping part
+				size -= prevSegmentEnd - offset;
+				offset = prevSegmentEnd;
+			}
+		}
+		if(size > 0) {
+			segments.add(new long[] { offset, size, layer });
+		}
+	}
+
+	public Mode mode() {
+		return mode;
+	}
+
+	public long fileSize() {
+		return fileSize;
+	}
+
+	/**
+	 @return the count of the updated bytes
+	 */
+	public long logicalSize() {
+		return logicalSize;
+	}
+
+	/**
+	 @return the count of the bytes to write for the update
+	 */
+	public long physicalSize() {
+		return fileSize - startPos;
+	}
+
+	/**
+	 @return the count of the bytes written for the update
+	 */
+	public long physicalBytesDone() {
+		return pos - startPos;
+	}
+
+	public long truncateSize() {
+		return startPos;
+	}
+
+	/**
+	 Moves to the segment containing the current position or to the next one if the current position is
+	 between the segments
+	 @return the content of the updated segment positioned to the current position, or null if the current
+	 position is not in the updated segment
+	 */
+	DataItem currentSegmentContent() {
+		long[] segment;
+		while(segmentIdx < segments.size()) {
+			segment = segments.get(segmentIdx);
+			if(pos >= segment[0] + segment[1]) {
+				segmentIdx ++;
+				segmentContent = null;
+			} else if(pos >= segment[0]) {
+				if(segmentContent == null) {
+					segmentContent = fileItem.slice(segment[0], segment[1]);
+					segmentContent.layer((int) segment[2]);
+				}
+				segmentContent.position(pos - segment[0]);
+				return segmentContent;
+			} else {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 @return the count of the unchanged bytes after the current position until the next updated segment
+	 */
+	long unchangedSize() {
+		return segmentIdx < segments.size() ? segments.get(segmentIdx)[0] - pos : fileSize - pos;
+	}
+
+	@Override
+	public String toString() {
+		return mode + ", updated regions: " + segments.size() + ", updated bytes: " + logicalSize
+			+ ", bytes to write: " + physicalSize();
+	}
+}
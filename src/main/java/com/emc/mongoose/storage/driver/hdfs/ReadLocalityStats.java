@@ -0,0 +1,59 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.github.akurilov.commons.system.SizeInBytes;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.hdfs.ReadStatistics;
+import org.apache.hadoop.hdfs.client.HdfsDataInputStream;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Accumulates the bytes read from the datanodes co-located with the client and from the remote ones. The
+ namenode endpoint doesn't determine which datanode serves the block: the namenode sorts the block's
+ replicas by the network distance to the client and the DFS client prefers the nearest one, so the driver
+ only reports the actual locality. The counts are taken from the input stream's read statistics, so only
+ the bytes actually read (e.g. the byte ranges) are counted.
+ */
+public final class ReadLocalityStats {
+
+	private final LongAdder localBytes = new LongAdder();
+	private final LongAdder shortCircuitBytes = new LongAdder();
+	private final LongAdder remoteBytes = new LongAdder();
+
+	/**
+	 Should be invoked before the input stream is closed
+	 */
+	public void update(final FSDataInputStream inputStream) {
+		if(inputStream instanceof HdfsDataInputStream) {
+			final ReadStatistics readStats = ((HdfsDataInputStream) inputStream).getReadStatistics();
+			// the short circuit bytes are counted as the local ones too
+			localBytes.add(readStats.getTotalLocalBytesRead());
+			shortCircuitBytes.add(readStats.getTotalShortCircuitBytesRead());
+			remoteBytes.add(readStats.getRemoteBytesRead());
+		}
+	}
+
+	public long localBytes() {
+		return localBytes.sum();
+	}
+
+	public long shortCircuitBytes() {
+		return shortCircuitBytes.sum();
+	}
+
+	public long remoteBytes() {
+		return remoteBytes.sum();
+	}
+
+	@Override
+	public String toString() {
+		final long local = localBytes.sum();
+		final long remote = remoteBytes.sum();
+		final long total = local + remote;
+		return String.format(
+			"local bytes: %s (short circuit: %s), remote bytes: %s, local ratio: %.3f",
+			SizeInBytes.formatFixedSize(local), SizeInBytes.formatFixedSize(shortCircuitBytes.sum()),
+			SizeInBytes.formatFixedSize(remote), total > 0 ? ((double) local) / total : 0.0
+		);
+	}
+}
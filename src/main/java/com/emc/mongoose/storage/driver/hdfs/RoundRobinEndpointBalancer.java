@@ -0,0 +1,24 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+public final class RoundRobinEndpointBalancer
+extends EndpointBalancerBase {
+
+	public RoundRobinEndpointBalancer(
+		final String[] endpointAddrs, final double ewmaAlpha, final int ejectFailures,
+		final long ejectPeriodMillis
+	) {
+		super(endpointAddrs, ewmaAlpha, ejectFailures, ejectPeriodMillis);
+	}
+
+	@Override
+	protected final int choose() {
+		int i;
+		for(int j = 0; j < endpointCount; j ++) {
+			i = nextRoundRobinIndex();
+			if(eligible(i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
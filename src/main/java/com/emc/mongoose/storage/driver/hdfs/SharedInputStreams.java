@@ -0,0 +1,228 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.emc.mongoose.base.item.op.Operation;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.Path;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ The reference counted input streams shared by the concurrent operations reading the same file. The
+ operations should use only the positioned reads which don't change the stream's position. The stream is
+ opened by the 1st operation acquiring it. If the cache is enabled the stream released by the last
+ operation is kept open for the subsequent operations reading the same file, so they don't need the
+ namenode calls to open the file. The least recently released streams are closed if the cache limit is
+ exceeded, the streams opened earlier than the TTL ago are not reused. The file's stream should be
+ invalidated if the file is changed or deleted. The streams are keyed by the qualified file paths, so the
+ files having the same path in the different name spaces don't share the stream.
+ */
+public final class SharedInputStreams
+implements AutoCloseable {
+
+	private static final class Entry {
+
+		final Path filePath;
+		final FSDataInputStream stream;
+		final long openTime;
+		int refCount = 1;
+		boolean invalid = false;
+
+		Entry(final Path filePath, final FSDataInputStream stream) {
+			this.filePath = filePath;
+			this.stream = stream;
+			this.openTime = System.nanoTime();
+		}
+	}
+
+	private final int cacheLimit;
+	private final long ttlNanos;
+	private final Consumer<FSDataInputStream> closer;
+	private final Map<Path, Entry> entries = new HashMap<>();
+	// the entries not used by any operation, the least recently released first
+	private final LinkedHashMap<Path, Entry> idleEntries = new LinkedHashMap<>();
+	private final Map<Operation<?>, Entry> opEntries = new ConcurrentHashMap<>();
+	private final LongAdder openCount = new LongAdder();
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder evictCount = new LongAdder();
+	private final LongAdder invalidateCount = new LongAdder();
+
+	/**
+	 @param cacheLimit the max count of the open streams not used by any operation, 0 disables the cache
+	 @param ttlMillis the max time to reuse the stream since it's opened, 0 means no limit
+	 @param closer closes the streams which are not used anymore
+	 */
+	public SharedInputStreams(
+		final int cacheLimit, final long ttlMillis, final Consumer<FSDataInputStream> closer
+	) {
+		this.cacheLimit = cacheLimit;
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.closer = closer;
+	}
+
+	/**
+	 @param filePath the qualified file path including the name space
+	 @param opener opens the new input stream if there's no shared one for the path yet, may return null
+	 @return the shared input stream or null if the opener returned null
+	 */
+	public FSDataInputStream acquire(
+		final Operation<?> operation, final Path filePath, final Supplier<FSDataInputStream> opener
+	) {
+		Entry entry;
+		FSDataInputStream expiredStream = null;
+		synchronized(this) {
+			entry = entries.get(filePath);
+			if(entry != null) {
+				if(entry.refCount == 0) {
+					idleEntries.remove(filePath);
+					if(expired(entry)) {
+						entries.remove(filePath);
+						expiredStream = entry.stream;
+						evictCount.increment();
+					}
+				}
+				if(expiredStream == null) {
+					entry.refCount ++;
+					hitCount.increment();
+					opEntries.put(operation, entry);
+					return entry.stream;
+				}
+			}
+		}
+		if(expiredStream != null) {
+			closer.accept(expiredStream);
+		}
+		final FSDataInputStream stream = opener.get();
+		if(stream == null) {
+			return null;
+		}
+		openCount.increment();
+		synchronized(this) {
+			entry = entries.get(filePath);
+			if(entry == null) {
+				entry = new Entry(filePath, stream);
+				entries.put(filePath, entry);
+			} else {
+				// opened concurrently by another operation
+				if(entry.refCount == 0) {
+					idleEntries.remove(filePath);
+				}
+				entry.refCount ++;
+			}
+			opEntries.put(operation, entry);
+		}
+		if(entry.stream != stream) {
+			closer.accept(stream);
+		}
+		return entry.stream;
+	}
+
+	/**
+	 @return true if the operation used the shared stream, false otherwise
+	 */
+	public boolean acquired(final Operation<?> operation) {
+		return opEntries.containsKey(operation);
+	}
+
+	/**
+	 @return false if the operation didn't use the shared stream, so its stream should be closed by the caller
+	 */
+	public boolean release(final Operation<?> operation) {
+		final Entry entry = opEntries.remove(operation);
+		if(entry == null) {
+			return false;
+		}
+		final List<FSDataInputStream> streamsToClose = new ArrayList<>(1);
+		synchronized(this) {
+			if(-- entry.refCount > 0) {
+				return true;
+			}
+			if(entry.invalid) {
+				streamsToClose.add(entry.stream);
+			} else if(cacheLimit <= 0 || expired(entry)) {
+				entries.remove(entry.filePath);
+				streamsToClose.add(entry.stream);
+			} else {
+				idleEntries.put(entry.filePath, entry);
+				final Iterator<Entry> idleEntriesIter = idleEntries.values().iterator();
+				Entry idleEntry;
+				while(idleEntriesIter.hasNext()) {
+					idleEntry = idleEntriesIter.next();
+					if(idleEntries.size() > cacheLimit || expired(idleEntry)) {
+						idleEntriesIter.remove();
+						entries.remove(idleEntry.filePath);
+						streamsToClose.add(idleEntry.stream);
+						evictCount.increment();
+					} else {
+						break;
+					}
+				}
+			}
+		}
+		for(final FSDataInputStream stream : streamsToClose) {
+			closer.accept(stream);
+		}
+		return true;
+	}
+
+	/**
+	 Should be invoked when the file is changed or deleted. The stream is closed immediately if it's not used
+	 by any operation or when it's released by the last operation otherwise.
+	 @param filePath the qualified file path including the name space
+	 */
+	public void invalidate(final Path filePath) {
+		final FSDataInputStream streamToClose;
+		synchronized(this) {
+			final Entry entry = entries.remove(filePath);
+			if(entry == null) {
+				return;
+			}
+			invalidateCount.increment();
+			if(entry.refCount == 0) {
+				idleEntries.remove(filePath);
+				streamToClose = entry.stream;
+			} else {
+				entry.invalid = true;
+				streamToClose = null;
+			}
+		}
+		if(streamToClose != null) {
+			closer.accept(streamToClose);
+		}
+	}
+
+	private boolean expired(final Entry entry) {
+		return ttlNanos > 0 && System.nanoTime() - entry.openTime > ttlNanos;
+	}
+
+	@Override
+	public void close() {
+		final List<FSDataInputStream> streamsToClose;
+		synchronized(this) {
+			streamsToClose = new ArrayList<>(idleEntries.size());
+			for(final Entry entry : idleEntries.values()) {
+				streamsToClose.add(entry.stream);
+			}
+			idleEntries.clear();
+			entries.clear();
+		}
+		for(final FSDataInputStream stream : streamsToClose) {
+			closer.accept(stream);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "hits: " + hitCount.sum() + ", misses: " + openCount.sum() + ", evictions: " + evictCount.sum()
+			+ ", invalidations: " + invalidateCount.sum();
+	}
+}
@@ -0,0 +1,128 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.emc.mongoose.base.item.op.Operation;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.BlockStoragePolicySpi;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.StorageType;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+import org.apache.hadoop.hdfs.protocol.BlockStoragePolicy;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Changes the file's storage policy, requests the namenode to move the file's block replicas to the storage
+ types required by the new policy and polls the block locations until the replicas storage types converge
+ to the policy. Doesn't block, the {@link #satisfy(Operation, FileSystem, Path)} method should be invoked
+ repeatedly until it returns true.
+ */
+public final class StoragePolicySatisfier {
+
+	private final String policyName;
+	private final long pollPeriodNanos;
+	private final long timeoutNanos;
+	// operation -> [start time, next poll time]
+	private final ConcurrentMap<Operation<?>, long[]> pendingOps = new ConcurrentHashMap<>();
+	private final LongAdder convergedCount = new LongAdder();
+	private final LongAdder convergedNanos = new LongAdder();
+	private final LongAccumulator convergedNanosMax = new LongAccumulator(Math::max, 0);
+	private final LongAdder timeoutCount = new LongAdder();
+
+	public StoragePolicySatisfier(
+		final String policyName, final long pollPeriodMillis, final long timeoutMillis
+	) {
+		this.policyName = policyName;
+		this.pollPeriodNanos = TimeUnit.MILLISECONDS.toNanos(pollPeriodMillis);
+		this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+	}
+
+	/**
+	 @return true if the file's block replicas storage types converged to the policy, false otherwise
+	 @throws TimeoutException if the storage types didn't converge in the configured time
+	 */
+	public boolean satisfy(final Operation<?> operation, final FileSystem endpoint, final Path filePath)
+	throws IOException, TimeoutException {
+		final long t = System.nanoTime();
+		final long[] opTimes = pendingOps.get(operation);
+		try {
+			if(opTimes == null) {
+				endpoint.setStoragePolicy(filePath, policyName);
+				if(endpoint instanceof DistributedFileSystem) {
+					((DistributedFileSystem) endpoint).satisfyStoragePolicy(filePath);
+				}
+				pendingOps.put(operation, new long[] { t, t + pollPeriodNanos });
+				return false;
+			}
+			if(t < opTimes[1]) {
+				return false;
+			}
+			if(converged(endpoint, filePath)) {
+				pendingOps.remove(operation);
+				final long nanos = t - opTimes[0];
+				convergedCount.increment();
+				convergedNanos.add(nanos);
+				convergedNanosMax.accumulate(nanos);
+				return true;
+			}
+			if(timeoutNanos > 0 && t - opTimes[0] > timeoutNanos) {
+				pendingOps.remove(operation);
+				timeoutCount.increment();
+				throw new TimeoutException(
+					"The storage policy \"" + policyName + "\" is not satisfied for the file \"" + filePath
+						+ "\" in " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "[ms]"
+				);
+			}
+			opTimes[1] = t + pollPeriodNanos;
+			return false;
+		} catch(final IOException e) {
+			pendingOps.remove(operation);
+			throw e;
+		}
+	}
+
+	private static boolean converged(final FileSystem endpoint, final Path filePath)
+	throws IOException {
+		final BlockStoragePolicySpi policy = endpoint.getStoragePolicy(filePath);
+		final short replication = endpoint.getFileStatus(filePath).getReplication();
+		final StorageType[] expectedStorageTypes;
+		if(policy instanceof BlockStoragePolicy) {
+			final List<StorageType> storageTypes = ((BlockStoragePolicy) policy)
+				.chooseStorageTypes(replication);
+			expectedStorageTypes = storageTypes.toArray(new StorageType[storageTypes.size()]);
+		} else {
+			expectedStorageTypes = policy.getStorageTypes().clone();
+		}
+		Arrays.sort(expectedStorageTypes);
+		final BlockLocation[] blockLocations = endpoint.getFileBlockLocations(filePath, 0, Long.MAX_VALUE);
+		for(final BlockLocation blockLocation : blockLocations) {
+			final StorageType[] storageTypes = blockLocation.getStorageTypes().clone();
+			Arrays.sort(storageTypes);
+			if(! Arrays.equals(expectedStorageTypes, storageTypes)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public void discard(final Operation<?> operation) {
+		pendingOps.remove(operation);
+	}
+
+	@Override
+	public String toString() {
+		final long count = convergedCount.sum();
+		return "policy: " + policyName + ", converged: " + count + ", mean convergence time: "
+			+ (count > 0 ? TimeUnit.NANOSECONDS.toMillis(convergedNanos.sum() / count) : 0)
+			+ "[ms], max convergence time: " + TimeUnit.NANOSECONDS.toMillis(convergedNanosMax.get())
+			+ "[ms], timeouts: " + timeoutCount.sum();
+	}
+}
@@ -0,0 +1,59 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.github.akurilov.commons.system.SizeInBytes;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.hdfs.ReadStatistics;
+import org.apache.hadoop.hdfs.client.HdfsDataInputStream;
+import org.apache.hadoop.hdfs.protocol.BlockType;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Accumulates the erasure coded (striped) files read statistics. The read is considered degraded if the
+ client had to decode the data, i.e. some of the data blocks were not available and the data were
+ reconstructed from the parity blocks. The DFS client accounts each decoding time in whole milliseconds and
+ doesn't count the decoded bytes, so this is an approximation: the reads which decodings took less than 1ms
+ each are not detected as degraded, and all the bytes read by the degraded read (including the parity and
+ the not decoded data bytes) are counted as its bytes.
+ */
+public final class StripedReadStats {
+
+	private final LongAdder readCount = new LongAdder();
+	private final LongAdder readBytes = new LongAdder();
+	private final LongAdder degradedReadCount = new LongAdder();
+	private final LongAdder degradedReadBytes = new LongAdder();
+	private final LongAdder decodingMillis = new LongAdder();
+
+	/**
+	 Should be invoked before the input stream is closed
+	 */
+	public void update(final FSDataInputStream inputStream) {
+		if(inputStream instanceof HdfsDataInputStream) {
+			final ReadStatistics readStats = ((HdfsDataInputStream) inputStream).getReadStatistics();
+			if(BlockType.STRIPED.equals(readStats.getBlockType())) {
+				final long totalBytesRead = readStats.getTotalBytesRead();
+				final long ecDecodingMillis = readStats.getTotalEcDecodingTimeMillis();
+				readCount.increment();
+				readBytes.add(totalBytesRead);
+				if(ecDecodingMillis > 0) {
+					degradedReadCount.increment();
+					degradedReadBytes.add(totalBytesRead);
+					decodingMillis.add(ecDecodingMillis);
+				}
+			}
+		}
+	}
+
+	public long readCount() {
+		return readCount.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "reads: " + readCount.sum() + ", bytes: " + SizeInBytes.formatFixedSize(readBytes.sum())
+			+ ", degraded reads (decoding time >= 1[ms]): " + degradedReadCount.sum()
+			+ ", bytes read by the degraded reads (not only decoded): "
+			+ SizeInBytes.formatFixedSize(degradedReadBytes.sum()) + ", decoding time: "
+			+ decodingMillis.sum() + "[ms]";
+	}
+}
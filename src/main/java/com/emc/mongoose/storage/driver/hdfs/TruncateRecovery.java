@@ -0,0 +1,89 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.emc.mongoose.base.item.op.Operation;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Truncates the files and tracks the asynchronous last block recovery: if the new length is not on the block
+ boundary the truncate returns false and the file remains open until the recovery is done. Doesn't block,
+ the {@link #truncate(Operation, FileSystem, Path, long)} method should be invoked repeatedly until it
+ returns true, so the recovery wait time is accounted in the operation duration.
+ */
+public final class TruncateRecovery {
+
+	private final long pollPeriodNanos;
+	// operation -> [truncate time, next poll time]
+	private final ConcurrentMap<Operation<?>, long[]> pendingOps = new ConcurrentHashMap<>();
+	private final LongAdder truncateCount = new LongAdder();
+	private final LongAdder recoveryCount = new LongAdder();
+	private final LongAdder recoveryDoneCount = new LongAdder();
+	private final LongAdder recoveryNanos = new LongAdder();
+	private final LongAccumulator recoveryNanosMax = new LongAccumulator(Math::max, 0);
+
+	public TruncateRecovery(final long pollPeriodMillis) {
+		this.pollPeriodNanos = TimeUnit.MILLISECONDS.toNanos(pollPeriodMillis);
+	}
+
+	/**
+	 @return true if the file is truncated and closed, false if the last block recovery is in progress
+	 */
+	public boolean truncate(
+		final Operation<?> operation, final FileSystem endpoint, final Path filePath, final long newLength
+	) throws IOException {
+		final long t = System.nanoTime();
+		final long[] opTimes = pendingOps.get(operation);
+		try {
+			if(opTimes == null) {
+				truncateCount.increment();
+				if(endpoint.truncate(filePath, newLength) || ! (endpoint instanceof DistributedFileSystem)) {
+					return true;
+				}
+				recoveryCount.increment();
+				pendingOps.put(operation, new long[] { t, t + pollPeriodNanos });
+				return false;
+			}
+			if(t < opTimes[1]) {
+				return false;
+			}
+			if(((DistributedFileSystem) endpoint).isFileClosed(filePath)) {
+				pendingOps.remove(operation);
+				final long nanos = t - opTimes[0];
+				recoveryDoneCount.increment();
+				recoveryNanos.add(nanos);
+				recoveryNanosMax.accumulate(nanos);
+				return true;
+			}
+			opTimes[1] = t + pollPeriodNanos;
+			return false;
+		} catch(final IOException e) {
+			pendingOps.remove(operation);
+			throw e;
+		}
+	}
+
+	public void discard(final Operation<?> operation) {
+		pendingOps.remove(operation);
+	}
+
+	public long truncateCount() {
+		return truncateCount.sum();
+	}
+
+	@Override
+	public String toString() {
+		final long doneCount = recoveryDoneCount.sum();
+		return "truncates: " + truncateCount.sum() + ", with the last block recovery: " + recoveryCount.sum()
+			+ ", mean recovery wait: "
+			+ (doneCount > 0 ? TimeUnit.NANOSECONDS.toMillis(recoveryNanos.sum() / doneCount) : 0)
+			+ "[ms], max recovery wait: " + TimeUnit.NANOSECONDS.toMillis(recoveryNanosMax.get()) + "[ms]";
+	}
+}
@@ -0,0 +1,266 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.emc.mongoose.base.data.DataCorruptionException;
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.item.op.Operation;
+import com.emc.mongoose.base.logging.Loggers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.emc.mongoose.base.storage.driver.StorageDriver.BUFF_SIZE_MIN;
+import static com.github.akurilov.commons.lang.Exceptions.throwUnchecked;
+
+/**
+ Verifies the read content in the separate threads: while the chunk is being verified the next chunk is
+ read by the I/O thread into the second buffer. At most one chunk per operation is being verified at any
+ time, so the content data item position is changed sequentially. The calling thread never waits for the
+ verification: if the previous chunk is being verified yet or the pool queue is full the chunk read is kept
+ pending and its submission is retried by the next {@link #ready(Operation)} or {@link #done(Operation)}
+ call. The buffers are sized by the content size (up to the max buffer size) and reused by the subsequent
+ operations.
+ */
+public final class VerifyPipeline
+implements AutoCloseable {
+
+	private static final class Verification {
+
+		ByteBuffer readBuff;
+		ByteBuffer verifyBuff;
+		long offset = 0;
+		Future<?> verify = null;
+		// not null if the chunk is read into the read buffer but its verification is not submitted yet
+		DataItem pendingContent = null;
+		long pendingOffset = 0;
+
+		Verification(final ByteBuffer readBuff, final ByteBuffer verifyBuff) {
+			this.readBuff = readBuff;
+			this.verifyBuff = verifyBuff;
+		}
+	}
+
+	private static final long TERMINATION_TIMEOUT_MILLIS = 10_000;
+
+	private final String name;
+	private final ThreadPoolExecutor executor;
+	private final HeapBuffPool buffPool;
+	private final ConcurrentMap<Operation<?>, Verification> verifications = new ConcurrentHashMap<>();
+	private final LongAdder verifyCount = new LongAdder();
+	private final LongAdder verifyNanos = new LongAdder();
+	private final LongAdder stallCount = new LongAdder();
+	private final LongAdder rejectCount = new LongAdder();
+
+	public VerifyPipeline(
+		final String threadNamePrefix, final int threads, final int queueLimit, final int buffSize
+	) {
+		this.name = threadNamePrefix;
+		// each verification thread verifies one buffer at a time, so keep the free ones for the next operations
+		buffPool = new HeapBuffPool(BUFF_SIZE_MIN, buffSize, 2 * threads);
+		final AtomicInteger threadNum = new AtomicInteger(0);
+		executor = new ThreadPoolExecutor(
+			threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueLimit),
+			task -> {
+				final Thread thread = new Thread(task, threadNamePrefix + "#" + threadNum.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			},
+			new ThreadPoolExecutor.AbortPolicy()
+		);
+	}
+
+	/**
+	 Retries the submission of the pending chunk verification if any
+	 @return true if the next chunk may be read, false if the previous chunk read is pending yet
+	 @throws DataCorruptionException if the previous chunk verification failed, the offset is relative to the
+	 content beginning
+	 @throws IOException if the pipeline is closed
+	 */
+	public boolean ready(final Operation<?> operation)
+	throws IOException {
+		final Verification verification = verifications.get(operation);
+		return verification == null || verification.pendingContent == null || submit(verification);
+	}
+
+	/**
+	 @param size the count of the bytes to read and verify by the operation, used only by the 1st invocation
+	 @return the cleared heap buffer to read the next chunk into while the previous chunk is being verified,
+	 should be invoked only if the pipeline is {@link #ready(Operation)} for the operation
+	 */
+	public ByteBuffer nextBuff(final Operation<?> operation, final long size) {
+		Verification verification = verifications.get(operation);
+		if(verification == null) {
+			verification = new Verification(
+				ByteBuffer.wrap(buffPool.take(size)), ByteBuffer.wrap(buffPool.take(size))
+			);
+			verifications.put(operation, verification);
+		}
+		// the read buffer is not being verified, it's swapped with the verified one by the submission
+		verification.readBuff.clear();
+		return verification.readBuff;
+	}
+
+	/**
+	 Submits the verification of the chunk read into the buffer returned by
+	 {@link #nextBuff(Operation, long)} if the previous chunk is verified already, otherwise keeps the chunk
+	 pending, so the content position is changed sequentially and the previous chunk's buffer may be used to
+	 read the next chunk.
+	 @param content the expected content positioned to the chunk beginning, the position is advanced by the
+	 chunk size after the verification
+	 @param offset the chunk offset relative to the content beginning
+	 @throws DataCorruptionException if the previous chunk verification failed, the offset is relative to the
+	 content beginning
+	 @throws IOException if the pipeline is closed
+	 */
+	public void verify(final Operation<?> operation, final DataItem content, final long offset)
+	throws IOException {
+		final Verification verification = verifications.get(operation);
+		verification.pendingContent = content;
+		verification.pendingOffset = offset;
+		submit(verification);
+	}
+
+	/**
+	 @return true if the last chunk of the operation is verified, false if it's pending or being verified yet
+	 @throws DataCorruptionException if the last chunk verification failed, the offset is relative to the
+	 content beginning
+	 @throws IOException if the pipeline is closed
+	 */
+	public boolean done(final Operation<?> operation)
+	throws IOException {
+		final Verification verification = verifications.get(operation);
+		if(verification == null) {
+			return true;
+		}
+		if(verification.pendingContent != null && ! submit(verification)) {
+			return false;
+		}
+		if(verification.verify == null) {
+			return true;
+		}
+		if(! verification.verify.isDone()) {
+			return false;
+		}
+		complete(verification);
+		return true;
+	}
+
+	/**
+	 Submits the pending chunk verification if the previous one is done
+	 @return true if submitted, false if the previous chunk is being verified yet or the pool queue is full
+	 */
+	private boolean submit(final Verification verification)
+	throws IOException {
+		if(verification.verify != null) {
+			if(! verification.verify.isDone()) {
+				stallCount.increment();
+				return false;
+			}
+			complete(verification);
+		}
+		final ByteBuffer buff = verification.readBuff;
+		final DataItem content = verification.pendingContent;
+		final Future<?> verify;
+		try {
+			verify = executor.submit(
+				() -> {
+					final long t = System.nanoTime();
+					try {
+						final int n = buff.remaining();
+						content.verify(buff);
+						content.position(content.position() + n);
+					} finally {
+						verifyNanos.add(System.nanoTime() - t);
+						verifyCount.increment();
+					}
+					return null;
+				}
+			);
+		} catch(final RejectedExecutionException e) {
+			if(executor.isShutdown()) {
+				throw new IOException("The verification pipeline is closed");
+			}
+			rejectCount.increment();
+			return false;
+		}
+		verification.readBuff = verification.verifyBuff;
+		verification.verifyBuff = buff;
+		verification.offset = verification.pendingOffset;
+		verification.verify = verify;
+		verification.pendingContent = null;
+		return true;
+	}
+
+	/**
+	 Gets the result of the done chunk verification
+	 */
+	private static void complete(final Verification verification)
+	throws DataCorruptionException {
+		try {
+			verification.verify.get();
+		} catch(final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if(cause instanceof DataCorruptionException) {
+				final DataCorruptionException dce = (DataCorruptionException) cause;
+				throw new DataCorruptionException(
+					verification.offset + dce.getOffset(), dce.expected, dce.actual
+				);
+			}
+			throwUnchecked(cause);
+		} catch(final InterruptedException e) {
+			throwUnchecked(e);
+		}
+		verification.verify = null;
+	}
+
+	/**
+	 Releases the operation's buffers. The buffer being verified is not reused.
+	 */
+	public void release(final Operation<?> operation) {
+		final Verification verification = verifications.remove(operation);
+		if(verification != null) {
+			buffPool.release(verification.readBuff.array());
+			if(verification.verify == null || verification.verify.isDone()) {
+				buffPool.release(verification.verifyBuff.array());
+			} else {
+				verification.verify.cancel(false);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+		try {
+			if(! executor.awaitTermination(TERMINATION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+				Loggers.ERR.warn(
+					"{}: {} chunk verifications are not interrupted in {}[ms], abandoned", name, executor.getActiveCount(),
+					TERMINATION_TIMEOUT_MILLIS
+				);
+			}
+		} catch(final InterruptedException e) {
+			throwUnchecked(e);
+		} finally {
+			verifications.clear();
+			buffPool.clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		final long count = verifyCount.sum();
+		return "verified chunks: " + count + ", mean verification time: "
+			+ (count > 0 ? TimeUnit.NANOSECONDS.toMicros(verifyNanos.sum() / count) : 0)
+			+ "[us], previous chunk not verified yet: " + stallCount.sum() + ", rejected by the full queue: "
+			+ rejectCount.sum();
+	}
+}
@@ -0,0 +1,15 @@
+package org.apache.hadoop.hdfs;
+
+/**
+ Exposes the DFS client's hedged read metrics which accessor is package private in the Hadoop version used.
+ The class is packed into the same jar with the HDFS client classes so the package private access works.
+ */
+public interface HedgedReadMetricsAccess {
+
+	/**
+	 @return the hedged read metrics, note that these are shared by all the DFS clients in the JVM
+	 */
+	static DFSHedgedReadMetrics hedgedReadMetrics(final DistributedFileSystem dfs) {
+		return dfs.getClient().getHedgedReadMetrics();
+	}
+}
@@ -0,0 +1,91 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.item.DataItemImpl;
+import com.emc.mongoose.base.item.op.OpType;
+import com.emc.mongoose.base.item.op.Operation;
+import com.emc.mongoose.base.item.op.data.DataOperationImpl;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncCloserTest {
+
+	private final CountDownLatch closeLatch = new CountDownLatch(1);
+	private final AtomicInteger closedCount = new AtomicInteger(0);
+	private final Closeable blockingStream = () -> {
+		try {
+			closeLatch.await();
+		} catch(final InterruptedException ignored) {
+		}
+		closedCount.incrementAndGet();
+	};
+
+	private static Operation<DataItem> createOperation() {
+		final DataItem dataItem = new DataItemImpl(0, 0x100, 0);
+		dataItem.name("0000");
+		return new DataOperationImpl<>(0, OpType.CREATE, dataItem, null, "/default", null, null, 0, null);
+	}
+
+	private static void awaitDone(final Future<?> closeFuture)
+	throws Exception {
+		closeFuture.get(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public final void testRejectedCloseRetried()
+	throws Exception {
+		final Operation<DataItem> op1 = createOperation();
+		final Operation<DataItem> op2 = createOperation();
+		final Operation<DataItem> op3 = createOperation();
+		try(final AsyncCloser closer = new AsyncCloser("test-close", 1, 1, 10_000)) {
+			// the 1st close is taken by the new close thread, the 2nd one is queued, the 3rd one is rejected
+			closer.close(op1, blockingStream);
+			closer.close(op2, blockingStream);
+			closer.close(op3, blockingStream);
+			assertEquals(1, closer.rejectCount());
+			// the rejected close is kept pending, not done by the calling thread
+			assertFalse(closer.pendingClose(op3).isDone());
+			assertEquals(0, closedCount.get());
+			assertEquals(2, closer.rejectCount());
+			closeLatch.countDown();
+			awaitDone(closer.pendingClose(op1));
+			awaitDone(closer.pendingClose(op2));
+			Future<?> closeFuture = closer.pendingClose(op3);
+			while(! closeFuture.isDone()) {
+				Thread.sleep(1);
+				closeFuture = closer.pendingClose(op3);
+			}
+			assertEquals(3, closedCount.get());
+		}
+	}
+
+	@Test
+	public final void testNotSubmittedCloseDoneOnClose()
+	throws Exception {
+		final Operation<DataItem> op1 = createOperation();
+		final Operation<DataItem> op2 = createOperation();
+		final Operation<DataItem> op3 = createOperation();
+		final AsyncCloser closer = new AsyncCloser("test-close", 1, 1, 10_000);
+		closer.close(op1, blockingStream);
+		closer.close(op2, blockingStream);
+		closer.close(op3, () -> closedCount.incrementAndGet());
+		assertTrue(closer.rejectCount() > 0);
+		final Future<?> closeFuture = closer.pendingClose(op3);
+		assertFalse(closeFuture.isDone());
+		closeLatch.countDown();
+		closer.close();
+		// closed by the closing thread instead of being lost
+		assertTrue(closeFuture.isDone());
+		assertEquals(3, closedCount.get());
+		assertEquals(0, closer.inFlightCount());
+	}
+}
@@ -0,0 +1,51 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.emc.mongoose.base.Constants.MIB;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BlockLayoutRulesTest {
+
+	@Test
+	public final void testNoRules() {
+		final BlockLayoutRules fileSizeBlocks = new BlockLayoutRules(0, (short) 0, Collections.emptyList());
+		assertEquals(10 * MIB, fileSizeBlocks.blockSize(10 * MIB));
+		assertEquals(3, fileSizeBlocks.replication(10 * MIB, (short) 3));
+		final BlockLayoutRules defaultBlocks = new BlockLayoutRules(128 * MIB, (short) 2, null);
+		assertEquals(128 * MIB, defaultBlocks.blockSize(10 * MIB));
+		assertEquals(2, defaultBlocks.replication(10 * MIB, (short) 3));
+	}
+
+	@Test
+	public final void testLargestMatchingMinFileSizeRule() {
+		final BlockLayoutRules rules = new BlockLayoutRules(
+			128 * MIB, (short) 0, Arrays.asList("1GB:256MB:2", "1MB:1MB", "64MB:64MB:3")
+		);
+		assertEquals(128 * MIB, rules.blockSize(MIB - 1));
+		assertEquals(5, rules.replication(MIB - 1, (short) 5));
+		assertEquals(MIB, rules.blockSize(MIB));
+		// the rule without the replication falls back to the file system default
+		assertEquals(5, rules.replication(MIB, (short) 5));
+		assertEquals(MIB, rules.blockSize(64 * MIB - 1));
+		assertEquals(64 * MIB, rules.blockSize(64 * MIB));
+		assertEquals(3, rules.replication(64 * MIB, (short) 5));
+		assertEquals(256 * MIB, rules.blockSize(1024 * MIB));
+		assertEquals(2, rules.replication(1024 * MIB, (short) 5));
+	}
+
+	@Test
+	public final void testInvalidRules() {
+		for(final String rule : Arrays.asList("1MB", "1MB:1MB:1:1", "1MB:0", "1MB:1MB:-1")) {
+			try {
+				new BlockLayoutRules(0, (short) 0, Collections.singletonList(rule));
+				fail("The rule \"" + rule + "\" should be rejected");
+			} catch(final IllegalArgumentException expected) {
+			}
+		}
+	}
+}
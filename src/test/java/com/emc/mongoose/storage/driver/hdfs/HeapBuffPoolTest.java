@@ -0,0 +1,58 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class HeapBuffPoolTest {
+
+	@Test
+	public final void testBuffSize() {
+		final HeapBuffPool buffPool = new HeapBuffPool(0x1000, 0x100000, 2);
+		assertEquals(0x1000, buffPool.take(0).length);
+		assertEquals(0x1000, buffPool.take(0x1000).length);
+		assertEquals(0x2000, buffPool.take(0x1001).length);
+		assertEquals(0x80000, buffPool.take(0x7FFFF).length);
+		assertEquals(0x100000, buffPool.take(0x100000).length);
+		assertEquals(0x100000, buffPool.take(Long.MAX_VALUE).length);
+	}
+
+	@Test
+	public final void testReuseSameSizeOnly() {
+		final HeapBuffPool buffPool = new HeapBuffPool(0x1000, 0x100000, 2);
+		final byte[] buff = buffPool.take(0x3000);
+		buffPool.release(buff);
+		assertNotSame(buff, buffPool.take(0x1000));
+		assertSame(buff, buffPool.take(0x3001));
+		assertNotSame(buff, buffPool.take(0x3001));
+	}
+
+	@Test
+	public final void testFreeLimit() {
+		final HeapBuffPool buffPool = new HeapBuffPool(0x1000, 0x100000, 2);
+		final byte[] buff1 = buffPool.take(0x1000);
+		final byte[] buff2 = buffPool.take(0x1000);
+		final byte[] buff3 = buffPool.take(0x1000);
+		buffPool.release(buff1);
+		buffPool.release(buff2);
+		// exceeds the free buffers limit, not pooled
+		buffPool.release(buff3);
+		final byte[] buff4 = buffPool.take(0x1000);
+		final byte[] buff5 = buffPool.take(0x1000);
+		final byte[] buff6 = buffPool.take(0x1000);
+		assertSame(buff1, buff4);
+		assertSame(buff2, buff5);
+		assertNotSame(buff3, buff6);
+	}
+
+	@Test
+	public final void testClear() {
+		final HeapBuffPool buffPool = new HeapBuffPool(0x1000, 0x100000, 2);
+		final byte[] buff = buffPool.take(0x1000);
+		buffPool.release(buff);
+		buffPool.clear();
+		assertNotSame(buff, buffPool.take(0x1000));
+	}
+}
@@ -0,0 +1,79 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.item.DataItemImpl;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import static com.emc.mongoose.base.Constants.MIB;
+import static org.junit.Assert.assertEquals;
+
+public class MultipartCreateTest {
+
+	private static final Path FILE_PATH = new Path("/default/0000");
+
+	@Test
+	public final void testBlockAlignedParts()
+	throws Exception {
+		final DataItem fileItem = new DataItemImpl(0, 10 * MIB, 0);
+		final MultipartCreate multipartCreate = new MultipartCreate(fileItem, FILE_PATH, 4, MIB);
+		// 2.5MB is rounded up to the block size multiple
+		assertEquals(3 * MIB, multipartCreate.partSize());
+		assertEquals(4, multipartCreate.partCount());
+		assertEquals(3 * MIB, multipartCreate.partRemainingSize(0));
+		assertEquals(3 * MIB, multipartCreate.partRemainingSize(2));
+		assertEquals(MIB, multipartCreate.partRemainingSize(3));
+		assertEquals(3 * MIB, multipartCreate.partContent(1).offset());
+		assertEquals(9 * MIB, multipartCreate.partContent(3).offset());
+	}
+
+	@Test
+	public final void testPartsPaths()
+	throws Exception {
+		final DataItem fileItem = new DataItemImpl(0, 10 * MIB, 0);
+		final MultipartCreate multipartCreate = new MultipartCreate(fileItem, FILE_PATH, 4, MIB);
+		// the 1st part is the destination file itself
+		assertEquals(FILE_PATH, multipartCreate.partPath(0));
+		assertEquals(new Path("/default/0000" + MultipartCreate.PART_SUFFIX + 3), multipartCreate.partPath(3));
+		final Path[] srcPartPaths = multipartCreate.srcPartPaths();
+		assertEquals(3, srcPartPaths.length);
+		for(int i = 0; i < srcPartPaths.length; i ++) {
+			assertEquals(multipartCreate.partPath(i + 1), srcPartPaths[i]);
+		}
+	}
+
+	@Test
+	public final void testNotAlignedParts()
+	throws Exception {
+		final DataItem fileItem = new DataItemImpl(0, 10 * MIB + 1, 0);
+		final MultipartCreate multipartCreate = new MultipartCreate(fileItem, FILE_PATH, 4, 0);
+		assertEquals(4, multipartCreate.partCount());
+		long partsSize = 0;
+		for(int i = 0; i < multipartCreate.partCount(); i ++) {
+			partsSize += multipartCreate.partRemainingSize(i);
+		}
+		assertEquals(fileItem.size(), partsSize);
+	}
+
+	@Test
+	public final void testBlockLargerThanPart()
+	throws Exception {
+		final DataItem fileItem = new DataItemImpl(0, 10 * MIB, 0);
+		final MultipartCreate multipartCreate = new MultipartCreate(fileItem, FILE_PATH, 4, 8 * MIB);
+		// the parts count is reduced to keep the parts block aligned
+		assertEquals(8 * MIB, multipartCreate.partSize());
+		assertEquals(2, multipartCreate.partCount());
+		assertEquals(2 * MIB, multipartCreate.partRemainingSize(1));
+	}
+
+	@Test
+	public final void testPartBytesDone()
+	throws Exception {
+		final DataItem fileItem = new DataItemImpl(0, 4 * MIB, 0);
+		final MultipartCreate multipartCreate = new MultipartCreate(fileItem, FILE_PATH, 2, MIB);
+		multipartCreate.partBytesDone[1] = MIB / 2;
+		assertEquals(MIB + MIB / 2, multipartCreate.partRemainingSize(1));
+		assertEquals(MIB / 2, multipartCreate.partContent(1).position());
+		assertEquals(2 * MIB, multipartCreate.partRemainingSize(0));
+	}
+}
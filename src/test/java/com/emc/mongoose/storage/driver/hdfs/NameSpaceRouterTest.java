@@ -0,0 +1,80 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NameSpaceRouterTest {
+
+	private static final String[] NAME_SPACES = new String[] {
+		"hdfs://ns1", "hdfs://ns2", "hdfs://ns3", "hdfs://ns4"
+	};
+
+	@Test
+	public final void testNameSpaceOf() {
+		assertEquals("hdfs://ns1", NameSpaceRouter.nameSpaceOf("hdfs://ns1/dir/file"));
+		assertEquals("hdfs://ns1:8020", NameSpaceRouter.nameSpaceOf("hdfs://ns1:8020/file"));
+		assertEquals("hdfs://ns1", NameSpaceRouter.nameSpaceOf("hdfs://ns1"));
+		assertNull(NameSpaceRouter.nameSpaceOf("/dir/file"));
+		assertNull(NameSpaceRouter.nameSpaceOf("file"));
+	}
+
+	@Test
+	public final void testQualifiedItemName() {
+		final NameSpaceRouter router = new NameSpaceRouter(NAME_SPACES);
+		for(int i = 0; i < NAME_SPACES.length; i ++) {
+			assertEquals(i, router.nameSpaceIndex(NAME_SPACES[i] + "/dir/file"));
+		}
+	}
+
+	@Test
+	public final void testSameFileNameSameNameSpace() {
+		final NameSpaceRouter router = new NameSpaceRouter(NAME_SPACES);
+		for(int i = 0; i < 1000; i ++) {
+			final String fileName = Integer.toString(i, Character.MAX_RADIX);
+			final int nameSpaceIdx = router.nameSpaceIndex(fileName);
+			assertEquals(nameSpaceIdx, router.nameSpaceIndex("/dir/" + fileName));
+			assertEquals(nameSpaceIdx, new NameSpaceRouter(NAME_SPACES).nameSpaceIndex(fileName));
+		}
+	}
+
+	@Test
+	public final void testUniformDistribution() {
+		final NameSpaceRouter router = new NameSpaceRouter(NAME_SPACES);
+		final int itemCount = 100_000;
+		final int[] counts = new int[NAME_SPACES.length];
+		for(int i = 0; i < itemCount; i ++) {
+			counts[router.nameSpaceIndex(Long.toString(i, Character.MAX_RADIX))] ++;
+		}
+		final int expectedCount = itemCount / NAME_SPACES.length;
+		for(final int count : counts) {
+			assertTrue(Integer.toString(count), Math.abs(count - expectedCount) < expectedCount / 10);
+		}
+	}
+
+	@Test
+	public final void testAddedNameSpaceTakesItemsFromTheOthersOnly() {
+		final NameSpaceRouter router = new NameSpaceRouter(NAME_SPACES);
+		final String[] moreNameSpaces = new String[NAME_SPACES.length + 1];
+		System.arraycopy(NAME_SPACES, 0, moreNameSpaces, 0, NAME_SPACES.length);
+		moreNameSpaces[NAME_SPACES.length] = "hdfs://ns5";
+		final NameSpaceRouter moreRouter = new NameSpaceRouter(moreNameSpaces);
+		final int itemCount = 100_000;
+		int movedCount = 0;
+		for(int i = 0; i < itemCount; i ++) {
+			final String itemName = Long.toString(i, Character.MAX_RADIX);
+			final int nameSpaceIdx = router.nameSpaceIndex(itemName);
+			final int newNameSpaceIdx = moreRouter.nameSpaceIndex(itemName);
+			if(newNameSpaceIdx != nameSpaceIdx) {
+				assertEquals(NAME_SPACES.length, newNameSpaceIdx);
+				movedCount ++;
+			}
+		}
+		final int expectedMovedCount = itemCount / moreNameSpaces.length;
+		assertTrue(
+			Integer.toString(movedCount), Math.abs(movedCount - expectedMovedCount) < expectedMovedCount / 10
+		);
+	}
+}
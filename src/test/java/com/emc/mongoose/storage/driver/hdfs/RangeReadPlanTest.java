@@ -0,0 +1,119 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.github.akurilov.commons.collection.Range;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+
+import static com.emc.mongoose.base.Constants.MIB;
+import static com.emc.mongoose.base.item.DataItem.rangeOffset;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RangeReadPlanTest {
+
+	@Test
+	public final void testPiecesSplitByCells() {
+		final RangeReadPlan plan = new RangeReadPlan(
+			1000, Collections.singletonList(new Range(0, 9, -1)), 0, MIB
+		);
+		// the cells are [0, 1), [1, 3), [3, 7), [7, 15)
+		assertEquals(4, plan.pieceCount());
+		for(int i = 0; i < plan.pieceCount(); i ++) {
+			final long[] piece = plan.piece(i);
+			assertEquals(rangeOffset(i), piece[0]);
+			assertEquals(i, piece[2]);
+		}
+		assertEquals(3, plan.piece(3)[1]);
+		// the adjacent pieces are read at once
+		assertEquals(1, plan.readCount());
+		assertEquals(10, plan.logicalSize());
+		assertEquals(10, plan.physicalSize());
+	}
+
+	@Test
+	public final void testGapLimit() {
+		final RangeReadPlan nearPlan = new RangeReadPlan(
+			1000, Arrays.asList(new Range(300, 399, -1), new Range(100, 199, -1)), 100, MIB
+		);
+		assertEquals(1, nearPlan.readCount());
+		assertEquals(200, nearPlan.logicalSize());
+		// the gap is read and skipped
+		assertEquals(300, nearPlan.physicalSize());
+		final long[] read = nearPlan.read(0);
+		assertEquals(nearPlan.pieceCount(), read[1]);
+		assertEquals(100, read[2]);
+		assertEquals(300, read[3]);
+		final RangeReadPlan farPlan = new RangeReadPlan(
+			1000, Arrays.asList(new Range(300, 399, -1), new Range(100, 199, -1)), 99, MIB
+		);
+		assertEquals(2, farPlan.readCount());
+		assertEquals(200, farPlan.logicalSize());
+		assertEquals(200, farPlan.physicalSize());
+	}
+
+	@Test
+	public final void testReadSizeLimit() {
+		final long readSizeLimit = 0x10000;
+		final RangeReadPlan plan = new RangeReadPlan(
+			MIB, Collections.singletonList(new Range(0, MIB - 1, -1)), MIB, readSizeLimit
+		);
+		long readSizeSum = 0;
+		for(int i = 0; i < plan.readCount(); i ++) {
+			final long[] read = plan.read(i);
+			assertTrue(read[3] <= readSizeLimit);
+			readSizeSum += read[3];
+		}
+		assertEquals(MIB, readSizeSum);
+		assertEquals(MIB, plan.logicalSize());
+		assertEquals(MIB, plan.physicalSize());
+	}
+
+	@Test
+	public final void testOverlappingRanges() {
+		final RangeReadPlan plan = new RangeReadPlan(
+			1000, Arrays.asList(new Range(0, 99, -1), new Range(50, 149, -1)), 0, MIB
+		);
+		assertEquals(1, plan.readCount());
+		// the requested bytes are verified twice but read once
+		assertEquals(200, plan.logicalSize());
+		assertEquals(150, plan.physicalSize());
+	}
+
+	@Test
+	public final void testTailAndHeadRanges() {
+		final RangeReadPlan tailPlan = new RangeReadPlan(
+			1000, Collections.singletonList(new Range(-1, 100, -1)), 0, MIB
+		);
+		assertEquals(100, tailPlan.logicalSize());
+		assertEquals(900, tailPlan.read(0)[2]);
+		final RangeReadPlan headPlan = new RangeReadPlan(
+			1000, Collections.singletonList(new Range(900, -1, -1)), 0, MIB
+		);
+		assertEquals(100, headPlan.logicalSize());
+		assertEquals(900, headPlan.read(0)[2]);
+		// out of the file
+		final RangeReadPlan emptyPlan = new RangeReadPlan(
+			1000, Collections.singletonList(new Range(1000, 1099, -1)), 0, MIB
+		);
+		assertEquals(0, emptyPlan.readCount());
+		assertEquals(0, emptyPlan.logicalSize());
+	}
+
+	@Test
+	public final void testRandomRanges() {
+		final BitSet[] maskRangesPair = new BitSet[] { new BitSet(), new BitSet() };
+		maskRangesPair[0].set(2);
+		maskRangesPair[1].set(5);
+		// the cells are [3, 7) and [31, 63)
+		final RangeReadPlan nearPlan = new RangeReadPlan(1000, maskRangesPair, 24, MIB);
+		assertEquals(1, nearPlan.readCount());
+		assertEquals(36, nearPlan.logicalSize());
+		assertEquals(60, nearPlan.physicalSize());
+		final RangeReadPlan farPlan = new RangeReadPlan(1000, maskRangesPair, 23, MIB);
+		assertEquals(2, farPlan.readCount());
+		assertEquals(36, farPlan.physicalSize());
+	}
+}
@@ -0,0 +1,210 @@
+package com.emc.mongoose.storage.driver.hdfs;
+
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.item.DataItemImpl;
+import com.emc.mongoose.base.item.op.OpType;
+import com.emc.mongoose.base.item.op.Operation;
+import com.emc.mongoose.base.item.op.data.DataOperationImpl;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PositionedReadable;
+import org.apache.hadoop.fs.Seekable;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SharedInputStreamsTest {
+
+	private static final class TestInputStream
+	extends ByteArrayInputStream
+	implements Seekable, PositionedReadable {
+
+		TestInputStream() {
+			super(new byte[0x100]);
+		}
+
+		@Override
+		public void seek(final long pos) {
+			this.pos = (int) pos;
+		}
+
+		@Override
+		public long getPos() {
+			return pos;
+		}
+
+		@Override
+		public boolean seekToNewSource(final long targetPos) {
+			return false;
+		}
+
+		@Override
+		public int read(final long position, final byte[] buffer, final int offset, final int length) {
+			return 0;
+		}
+
+		@Override
+		public void readFully(final long position, final byte[] buffer, final int offset, final int length) {
+		}
+
+		@Override
+		public void readFully(final long position, final byte[] buffer) {
+		}
+	}
+
+	private static final Path FILE_PATH = new Path("hdfs://ns1/default/0000");
+	private static final Path OTHER_FILE_PATH = new Path("hdfs://ns1/default/1111");
+
+	private final AtomicInteger openCount = new AtomicInteger(0);
+	private final List<FSDataInputStream> closedStreams = new ArrayList<>();
+	private final Supplier<FSDataInputStream> opener = () -> {
+		openCount.incrementAndGet();
+		return new FSDataInputStream(new TestInputStream());
+	};
+
+	private static Operation<DataItem> readOperation() {
+		final DataItem dataItem = new DataItemImpl(0, 0x100, 0);
+		dataItem.name("0000");
+		return new DataOperationImpl<>(0, OpType.READ, dataItem, "/default", null, null, null, 0, null);
+	}
+
+	@Test
+	public final void testSharedByConcurrentOperations() {
+		final SharedInputStreams streams = new SharedInputStreams(0, 0, closedStreams::add);
+		final Operation<DataItem> op1 = readOperation();
+		final Operation<DataItem> op2 = readOperation();
+		final FSDataInputStream stream = streams.acquire(op1, FILE_PATH, opener);
+		assertSame(stream, streams.acquire(op2, FILE_PATH, opener));
+		assertEquals(1, openCount.get());
+		assertTrue(streams.acquired(op1));
+		assertTrue(streams.acquired(op2));
+		assertTrue(streams.release(op1));
+		assertTrue(closedStreams.isEmpty());
+		// closed by the last operation as far as the cache is disabled
+		assertTrue(streams.release(op2));
+		assertEquals(1, closedStreams.size());
+		assertSame(stream, closedStreams.get(0));
+		assertFalse(streams.acquired(op2));
+	}
+
+	@Test
+	public final void testNotAcquired() {
+		final SharedInputStreams streams = new SharedInputStreams(0, 0, closedStreams::add);
+		final Operation<DataItem> op = readOperation();
+		assertNull(streams.acquire(op, FILE_PATH, () -> null));
+		assertFalse(streams.acquired(op));
+		// the caller should close the stream itself
+		assertFalse(streams.release(op));
+	}
+
+	@Test
+	public final void testDifferentFiles() {
+		final SharedInputStreams streams = new SharedInputStreams(0, 0, closedStreams::add);
+		final Operation<DataItem> op1 = readOperation();
+		final Operation<DataItem> op2 = readOperation();
+		assertNotSame(
+			streams.acquire(op1, FILE_PATH, opener), streams.acquire(op2, OTHER_FILE_PATH, opener)
+		);
+		assertEquals(2, openCount.get());
+	}
+
+	@Test
+	public final void testInvalidateInUse() {
+		final SharedInputStreams streams = new SharedInputStreams(0, 0, closedStreams::add);
+		final Operation<DataItem> op1 = readOperation();
+		final Operation<DataItem> op2 = readOperation();
+		final FSDataInputStream stream = streams.acquire(op1, FILE_PATH, opener);
+		streams.invalidate(FILE_PATH);
+		assertTrue(closedStreams.isEmpty());
+		// the changed file is opened again
+		assertNotSame(stream, streams.acquire(op2, FILE_PATH, opener));
+		assertEquals(2, openCount.get());
+		assertTrue(streams.release(op1));
+		assertEquals(1, closedStreams.size());
+		assertSame(stream, closedStreams.get(0));
+	}
+
+	@Test
+	public final void testSamePathDifferentNameSpaces() {
+		final SharedInputStreams streams = new SharedInputStreams(2, 0, closedStreams::add);
+		final Operation<DataItem> op1 = readOperation();
+		final Operation<DataItem> op2 = readOperation();
+		final Path otherNameSpaceFilePath = new Path("hdfs://ns2/default/0000");
+		assertNotSame(
+			streams.acquire(op1, FILE_PATH, opener), streams.acquire(op2, otherNameSpaceFilePath, opener)
+		);
+		assertEquals(2, openCount.get());
+		streams.release(op1);
+		streams.release(op2);
+		// the same path in the other name space is a different file
+		streams.invalidate(otherNameSpaceFilePath);
+		streams.acquire(readOperation(), FILE_PATH, opener);
+		assertEquals(2, openCount.get());
+	}
+
+	@Test
+	public final void testCachedAfterRelease() {
+		final SharedInputStreams streams = new SharedInputStreams(1, 0, closedStreams::add);
+		final Operation<DataItem> op1 = readOperation();
+		final FSDataInputStream stream = streams.acquire(op1, FILE_PATH, opener);
+		assertTrue(streams.release(op1));
+		assertTrue(closedStreams.isEmpty());
+		final Operation<DataItem> op2 = readOperation();
+		assertSame(stream, streams.acquire(op2, FILE_PATH, opener));
+		assertEquals(1, openCount.get());
+		assertTrue(streams.release(op2));
+		streams.close();
+		assertEquals(1, closedStreams.size());
+	}
+
+	@Test
+	public final void testLeastRecentlyReleasedEvicted() {
+		final SharedInputStreams streams = new SharedInputStreams(1, 0, closedStreams::add);
+		final Operation<DataItem> op1 = readOperation();
+		final Operation<DataItem> op2 = readOperation();
+		final FSDataInputStream stream = streams.acquire(op1, FILE_PATH, opener);
+		final FSDataInputStream otherStream = streams.acquire(op2, OTHER_FILE_PATH, opener);
+		streams.release(op1);
+		streams.release(op2);
+		assertEquals(1, closedStreams.size());
+		assertSame(stream, closedStreams.get(0));
+		assertSame(otherStream, streams.acquire(readOperation(), OTHER_FILE_PATH, opener));
+		assertEquals(2, openCount.get());
+	}
+
+	@Test
+	public final void testExpiredNotReused()
+	throws Exception {
+		final SharedInputStreams streams = new SharedInputStreams(1, 1, closedStreams::add);
+		final Operation<DataItem> op = readOperation();
+		final FSDataInputStream stream = streams.acquire(op, FILE_PATH, opener);
+		Thread.sleep(10);
+		streams.release(op);
+		assertEquals(1, closedStreams.size());
+		assertNotSame(stream, streams.acquire(readOperation(), FILE_PATH, opener));
+		assertEquals(2, openCount.get());
+	}
+
+	@Test
+	public final void testInvalidateCached() {
+		final SharedInputStreams streams = new SharedInputStreams(1, 0, closedStreams::add);
+		final Operation<DataItem> op = readOperation();
+		final FSDataInputStream stream = streams.acquire(op, FILE_PATH, opener);
+		streams.release(op);
+		streams.invalidate(FILE_PATH);
+		assertEquals(1, closedStreams.size());
+		assertSame(stream, closedStreams.get(0));
+		assertNotSame(stream, streams.acquire(readOperation(), FILE_PATH, opener));
+	}
+}
@@ -8,6 +8,7 @@ import com.emc.mongoose.base.item.Item;
 import com.emc.mongoose.base.item.ItemFactory;
 import com.emc.mongoose.base.storage.Credential;
 import com.emc.mongoose.storage.driver.hdfs.HdfsStorageDriver;
+import com.emc.mongoose.storage.driver.hdfs.util.ConfigUtil;
 import com.emc.mongoose.storage.driver.hdfs.util.docker.HdfsNodeContainer;
 import com.github.akurilov.commons.collection.TreeUtil;
 import com.github.akurilov.commons.system.SizeInBytes;
@@ -74,6 +75,7 @@ extends HdfsStorageDriver {
 				.ifPresent(configSchemas::add);
 			final Map<String, Object> configSchema = TreeUtil.reduceForest(configSchemas);
 			final Config config = new BasicConfig("-", configSchema);
+			ConfigUtil.loadDefaults(config, configSchema);
 			config.val("load-batch-size", 128);
 			config.val("storage-net-reuseAddr", true);
 			config.val("storage-net-bindBacklogSize", 0);
@@ -10,6 +10,9 @@ import com.emc.mongoose.base.item.op.data.DataOperation;
 import com.emc.mongoose.base.item.op.data.DataOperationImpl;
 import com.emc.mongoose.base.storage.Credential;
 import com.emc.mongoose.storage.driver.hdfs.HdfsStorageDriver;
+import com.emc.mongoose.storage.driver.hdfs.MultipartCreate;
+import com.emc.mongoose.storage.driver.hdfs.PackedItems;
+import com.emc.mongoose.storage.driver.hdfs.util.ConfigUtil;
 import com.emc.mongoose.storage.driver.hdfs.util.docker.DockerHost;
 import com.emc.mongoose.storage.driver.hdfs.util.docker.HdfsNodeContainer;
 import com.github.akurilov.commons.collection.Range;
@@ -21,7 +24,6 @@ import com.github.akurilov.confuse.impl.BasicConfig;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -37,6 +39,7 @@ import static com.emc.mongoose.base.Constants.APP_NAME;
 import static com.emc.mongoose.base.Constants.MIB;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -80,6 +83,7 @@ extends HdfsStorageDriver<DataItem, DataOperation<DataItem>> {
 				.ifPresent(configSchemas::add);
 			final Map<String, Object> configSchema = TreeUtil.reduceForest(configSchemas);
 			final Config config = new BasicConfig("-", configSchema);
+			ConfigUtil.loadDefaults(config, configSchema);
 			config.val("load-batch-size", 4096);
 			config.val("storage-net-reuseAddr", true);
 			config.val("storage-net-bindBacklogSize", 0);
@@ -120,6 +124,71 @@ extends HdfsStorageDriver<DataItem, DataOperation<DataItem>> {
 		);
 	}
 
+	/**
+	 @return the driver configured as this one except the given configuration values
+	 */
+	private static DataOperationsTest driver(final Map<String, Object> configVals)
+	throws Exception {
+		final Config config = getConfig();
+		configVals.forEach(config::val);
+		return new DataOperationsTest(config);
+	}
+
+	/**
+	 Prepares the operation and invokes it until it's done
+	 @return the resulting operation status
+	 */
+	private static Operation.Status invokeUntilDone(
+		final DataOperationsTest driver, final DataOperation<DataItem> operation
+	) {
+		driver.prepare(operation);
+		operation.status(Operation.Status.ACTIVE);
+		while(Operation.Status.ACTIVE.equals(operation.status())) {
+			driver.invokeNio(operation);
+		}
+		return operation.status();
+	}
+
+	/**
+	 @return the new file item created in the "/default" directory
+	 */
+	private static DataItem createFile(
+		final DataOperationsTest driver, final String name, final long offset, final long size
+	) {
+		final DataItem dataItem = new DataItemImpl(offset, size, 0);
+		dataItem.name(name);
+		dataItem.dataInput(DATA_INPUT);
+		final DataOperation<DataItem> createTask = new DataOperationImpl<>(
+			0, OpType.CREATE, dataItem, null, "/default", CREDENTIAL, null, 0, null
+		);
+		assertEquals(Operation.Status.SUCC, invokeUntilDone(driver, createTask));
+		assertEquals(size, createTask.countBytesDone());
+		return dataItem;
+	}
+
+	/**
+	 @return the operation on the file item from the "/default" directory
+	 */
+	private static DataOperation<DataItem> operation(
+		final OpType opType, final DataItem dataItem, final List<Range> fixedRanges,
+		final int randomRangesCount
+	) {
+		return new DataOperationImpl<>(
+			0, opType, dataItem, "/default", null, CREDENTIAL, fixedRanges, randomRangesCount, null
+		);
+	}
+
+	/**
+	 @return the item with the same name and size but the different expected content
+	 */
+	private static DataItem otherContentItem(final DataItem dataItem)
+	throws IOException {
+		final DataItem otherDataItem = new DataItemImpl(dataItem.offset() + MIB, dataItem.size(), 0);
+		otherDataItem.name(dataItem.name());
+		otherDataItem.dataInput(DATA_INPUT);
+		return otherDataItem;
+	}
+
 	@Test
 	public final void testCreateFile()
 	throws Exception {
@@ -182,7 +251,7 @@ extends HdfsStorageDriver<DataItem, DataOperation<DataItem>> {
 		assertEquals(dataItem.size(), fileStatus.getLen());
 	}
 
-	@Test @Ignore
+	@Test
 	public final void testConcatFile()
 	throws Exception {
 
@@ -435,4 +504,259 @@ extends HdfsStorageDriver<DataItem, DataOperation<DataItem>> {
 		assertEquals(Operation.Status.SUCC, deleteTask.status());
 		assertFalse(endpoint.exists(new Path("/default", dataItem.name())));
 	}
+
+	@Test
+	public final void testReadFullFileLocalityStats()
+	throws Exception {
+
+		final DataOperationsTest driver = driver(Map.of("storage-driver-hdfs-read-locality-enabled", true));
+		try {
+			final DataItem dataItem = createFile(driver, "8000", 0, MIB);
+			final DataOperation<DataItem> readTask = operation(OpType.READ, dataItem, null, 0);
+			assertEquals(Operation.Status.SUCC, invokeUntilDone(driver, readTask));
+			assertEquals(dataItem.size(), readTask.countBytesDone());
+			// the stats are updated when the input stream is closed
+			assertEquals(
+				MIB, driver.readLocalityStats.localBytes() + driver.readLocalityStats.remoteBytes()
+			);
+		} finally {
+			driver.close();
+		}
+	}
+
+	@Test
+	public final void testCreateAndReadPackedItems()
+	throws Exception {
+
+		final List<DataItem> dataItems = new ArrayList<>();
+		final DataOperationsTest driver = driver(Map.of("storage-driver-hdfs-pack-enabled", true));
+		try {
+			for(int i = 0; i < 10; i ++) {
+				final DataItem dataItem = createFile(driver, "900" + i, i * MIB, 10 * 1024);
+				// the item is appended to the same container as the previous ones
+				assertNotNull(PackedItems.containerName(dataItem.name()));
+				assertEquals(i * dataItem.size(), PackedItems.offset(dataItem.name()));
+				dataItems.add(dataItem);
+			}
+			// the packed items are visible before the container file is closed
+			for(final DataItem dataItem : dataItems) {
+				final DataOperation<DataItem> readTask = operation(OpType.READ, dataItem, null, 0);
+				assertEquals(Operation.Status.SUCC, invokeUntilDone(this, readTask));
+				assertEquals(dataItem.size(), readTask.countBytesDone());
+			}
+		} finally {
+			// closes the container file
+			driver.close();
+		}
+
+		assertEquals(
+			Operation.Status.RESP_FAIL_CLIENT,
+			invokeUntilDone(this, operation(OpType.UPDATE, dataItems.get(0), null, 0))
+		);
+	}
+
+	@Test
+	public final void testUpdateRandomRangesAndReadFile()
+	throws Exception {
+
+		for(final boolean updateTruncate : new boolean[] { true, false }) {
+			final DataOperationsTest driver = driver(
+				Map.of("storage-driver-hdfs-update-truncate", updateTruncate)
+			);
+			try {
+				final DataItem dataItem = createFile(driver, updateTruncate ? "a001" : "a002", 0, MIB);
+				final DataOperation<DataItem> updateTask = operation(OpType.UPDATE, dataItem, null, 4);
+				assertEquals(Operation.Status.SUCC, invokeUntilDone(driver, updateTask));
+				assertTrue(0 < updateTask.countBytesDone());
+				assertTrue(updateTask.countBytesDone() <= MIB);
+				assertTrue(dataItem.isUpdated());
+				final FileStatus fileStatus = driver.getEndpoint(endpointAddrs[0]).getFileStatus(
+					new Path("/default", dataItem.name())
+				);
+				assertEquals(MIB, fileStatus.getLen());
+
+				// the updated ranges content is verified
+				final DataOperation<DataItem> readTask = operation(OpType.READ, dataItem, null, 0);
+				assertEquals(Operation.Status.SUCC, invokeUntilDone(driver, readTask));
+				assertEquals(MIB, readTask.countBytesDone());
+			} finally {
+				driver.close();
+			}
+		}
+	}
+
+	@Test
+	public final void testUpdateRangesWithAppendRejected()
+	throws Exception {
+
+		final DataItem dataItem = createFile(this, "a009", 0, MIB);
+		final List<Range> fixedRanges = new ArrayList<>();
+		fixedRanges.add(new Range(123, 456, -1));
+		fixedRanges.add(new Range(-1, -1, MIB));
+		assertEquals(
+			Operation.Status.RESP_FAIL_CLIENT,
+			invokeUntilDone(this, operation(OpType.UPDATE, dataItem, fixedRanges, 0))
+		);
+		final FileStatus fileStatus = getEndpoint(endpointAddrs[0]).getFileStatus(
+			new Path("/default", dataItem.name())
+		);
+		assertEquals(MIB, fileStatus.getLen());
+	}
+
+	@Test
+	public final void testTruncateAndReadFile()
+	throws Exception {
+
+		final DataOperationsTest driver = driver(Map.of("storage-driver-hdfs-update-tailCut", true));
+		try {
+			final DataItem dataItem = createFile(driver, "a003", 0, MIB);
+			// cut the last quarter, the new file end is not aligned to the block so the last block is recovered
+			final DataOperation<DataItem> truncateTask = operation(
+				OpType.UPDATE, dataItem, Collections.singletonList(new Range(-1, MIB / 4, -1)), 0
+			);
+			assertEquals(Operation.Status.SUCC, invokeUntilDone(driver, truncateTask));
+			assertEquals(MIB - MIB / 4, dataItem.size());
+			final FileStatus fileStatus = driver.getEndpoint(endpointAddrs[0]).getFileStatus(
+				new Path("/default", dataItem.name())
+			);
+			assertEquals(MIB - MIB / 4, fileStatus.getLen());
+
+			final DataOperation<DataItem> readTask = operation(OpType.READ, dataItem, null, 0);
+			assertEquals(Operation.Status.SUCC, invokeUntilDone(driver, readTask));
+			assertEquals(MIB - MIB / 4, readTask.countBytesDone());
+		} finally {
+			driver.close();
+		}
+	}
+
+	@Test
+	public final void testMultipartCreateAndReadFile()
+	throws Exception {
+
+		final DataOperationsTest driver = driver(
+			Map.of(
+				"storage-driver-hdfs-multipart-parts", 4, "storage-driver-hdfs-multipart-threshold", "1MB",
+				"storage-driver-hdfs-block-size", "1MB"
+			)
+		);
+		try {
+			final DataItem dataItem = createFile(driver, "a004", 0, 5 * MIB);
+			// the block aligned parts are concatenated into the 1st one
+			final FileSystem endpoint = driver.getEndpoint(endpointAddrs[0]);
+			final Path filePath = new Path("/default", dataItem.name());
+			final FileStatus fileStatus = endpoint.getFileStatus(filePath);
+			assertEquals(5 * MIB, fileStatus.getLen());
+			assertEquals(MIB, fileStatus.getBlockSize());
+			for(int i = 1; i < 4; i ++) {
+				assertFalse(
+					endpoint.exists(new Path("/default", dataItem.name() + MultipartCreate.PART_SUFFIX + i))
+				);
+			}
+
+			final DataOperation<DataItem> readTask = operation(OpType.READ, dataItem, null, 0);
+			assertEquals(Operation.Status.SUCC, invokeUntilDone(driver, readTask));
+			assertEquals(dataItem.size(), readTask.countBytesDone());
+		} finally {
+			driver.close();
+		}
+	}
+
+	@Test
+	public final void testCopyFilePrefetched()
+	throws Exception {
+
+		final DataOperationsTest driver = driver(Map.of("storage-driver-hdfs-copy-threads", 2));
+		try {
+			// larger than the prefetch buffer
+			final DataItem dataItem = createFile(driver, "a005", 0, 40 * MIB);
+			final DataOperation<DataItem> copyTask = new DataOperationImpl<>(
+				0, OpType.CREATE, dataItem, "/default", "/copies", CREDENTIAL, null, 0, null
+			);
+			assertEquals(Operation.Status.SUCC, invokeUntilDone(driver, copyTask));
+			assertEquals(dataItem.size(), copyTask.countBytesDone());
+
+			final DataOperation<DataItem> readTask = new DataOperationImpl<>(
+				0, OpType.READ, dataItem, "/copies", null, CREDENTIAL, null, 0, null
+			);
+			assertEquals(Operation.Status.SUCC, invokeUntilDone(driver, readTask));
+			assertEquals(dataItem.size(), readTask.countBytesDone());
+		} finally {
+			driver.close();
+		}
+	}
+
+	@Test
+	public final void testReadCoalescedRangesFile()
+	throws Exception {
+
+		final DataOperationsTest driver = driver(Map.of("storage-driver-hdfs-read-coalesce-enabled", true));
+		try {
+			final DataItem dataItem = createFile(driver, "a006", 0, MIB);
+			final DataOperation<DataItem> randomRangesReadTask = operation(OpType.READ, dataItem, null, 10);
+			assertEquals(Operation.Status.SUCC, invokeUntilDone(driver, randomRangesReadTask));
+			assertEquals(randomRangesReadTask.markedRangesSize(), randomRangesReadTask.countBytesDone());
+
+			final List<Range> fixedRanges = new ArrayList<>();
+			fixedRanges.add(new Range(789, 1234, -1));
+			fixedRanges.add(new Range(123, 456, -1));
+			final DataOperation<DataItem> fixedRangesReadTask = operation(
+				OpType.READ, dataItem, fixedRanges, 0
+			);
+			assertEquals(Operation.Status.SUCC, invokeUntilDone(driver, fixedRangesReadTask));
+			assertEquals(456 - 123 + 1 + 1234 - 789 + 1, fixedRangesReadTask.countBytesDone());
+
+			// the coalesced ranges content is verified
+			assertEquals(
+				Operation.Status.RESP_FAIL_CORRUPT,
+				invokeUntilDone(driver, operation(OpType.READ, otherContentItem(dataItem), fixedRanges, 0))
+			);
+		} finally {
+			driver.close();
+		}
+	}
+
+	@Test
+	public final void testReadFullFileVerifyPipelined()
+	throws Exception {
+
+		final DataOperationsTest driver = driver(Map.of("storage-driver-hdfs-read-verify-threads", 2));
+		try {
+			// larger than the verification buffer
+			final DataItem dataItem = createFile(driver, "a007", 0, 40 * MIB);
+			final DataOperation<DataItem> readTask = operation(OpType.READ, dataItem, null, 0);
+			assertEquals(Operation.Status.SUCC, invokeUntilDone(driver, readTask));
+			assertEquals(dataItem.size(), readTask.countBytesDone());
+			assertEquals(
+				Operation.Status.RESP_FAIL_CORRUPT,
+				invokeUntilDone(driver, operation(OpType.READ, otherContentItem(dataItem), null, 0))
+			);
+		} finally {
+			driver.close();
+		}
+	}
+
+	@Test
+	public final void testReadFullFileCompositeCrcVerify()
+	throws Exception {
+
+		final DataOperationsTest driver = driver(
+			Map.of("storage-driver-hdfs-read-verify-mode", "compositeCrc")
+		);
+		try {
+			// the expected CRC is calculated by the several invocations
+			final DataItem dataItem = createFile(driver, "a008", 0, 40 * MIB);
+			// the 2nd read uses the cached expected CRC
+			for(int i = 0; i < 2; i ++) {
+				assertEquals(
+					Operation.Status.SUCC, invokeUntilDone(driver, operation(OpType.READ, dataItem, null, 0))
+				);
+			}
+			assertEquals(
+				Operation.Status.RESP_FAIL_CORRUPT,
+				invokeUntilDone(driver, operation(OpType.READ, otherContentItem(dataItem), null, 0))
+			);
+		} finally {
+			driver.close();
+		}
+	}
 }
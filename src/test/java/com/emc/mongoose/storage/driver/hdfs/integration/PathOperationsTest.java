@@ -6,6 +6,7 @@ import com.emc.mongoose.base.item.PathItem;
 import com.emc.mongoose.base.item.op.path.PathOperation;
 import com.emc.mongoose.base.storage.Credential;
 import com.emc.mongoose.storage.driver.hdfs.HdfsStorageDriver;
+import com.emc.mongoose.storage.driver.hdfs.util.ConfigUtil;
 import com.emc.mongoose.storage.driver.hdfs.util.docker.DockerHost;
 import com.emc.mongoose.storage.driver.hdfs.util.docker.HdfsNodeContainer;
 import com.github.akurilov.commons.collection.TreeUtil;
@@ -57,6 +58,7 @@ extends HdfsStorageDriver<PathItem, PathOperation<PathItem>> {
 				.ifPresent(configSchemas::add);
 			final Map<String, Object> configSchema = TreeUtil.reduceForest(configSchemas);
 			final Config config = new BasicConfig("-", configSchema);
+			ConfigUtil.loadDefaults(config, configSchema);
 			config.val("item-type", ItemType.PATH.name().toLowerCase());
 			config.val("load-batch-size", 4096);
 			config.val("storage-net-reuseAddr", true);
@@ -0,0 +1,49 @@
+package com.emc.mongoose.storage.driver.hdfs.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.github.akurilov.confuse.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+public interface ConfigUtil {
+
+	String DEFAULTS_RESOURCE_PATH = "/config/defaults-storage-net.yaml";
+	String PATH_SEP = "-";
+
+	/**
+	 Sets the values from the storage driver defaults file, the same as installed with the extension
+	 @param config the configuration using the "-" path separator to set the default values into
+	 @param schema the configuration schema used to distinguish the map values from the nested paths
+	 */
+	static void loadDefaults(final Config config, final Map<String, Object> schema)
+	throws IOException {
+		try(final InputStream defaultsInput = ConfigUtil.class.getResourceAsStream(DEFAULTS_RESOURCE_PATH)) {
+			final Map<String, Object> defaults = new ObjectMapper(new YAMLFactory()).readValue(
+				defaultsInput, new TypeReference<Map<String, Object>>() {}
+			);
+			loadValues(config, schema, defaults, "");
+		}
+	}
+
+	private static void loadValues(
+		final Config config, final Map<String, Object> schema, final Map<String, Object> values,
+		final String pathPrefix
+	) {
+		for(final Map.Entry<String, Object> entry : values.entrySet()) {
+			final String path = pathPrefix + entry.getKey();
+			final Object subSchema = schema.get(entry.getKey());
+			if(subSchema instanceof Map) {
+				loadValues(
+					config, (Map<String, Object>) subSchema, (Map<String, Object>) entry.getValue(),
+					path + PATH_SEP
+				);
+			} else {
+				config.val(path, entry.getValue());
+			}
+		}
+	}
+}